@@ -42,6 +42,7 @@ void main() throws IOException {
     val dlnaServerModule = new DlnaServiceModule(configModule.getMainConfiguration(), baseServicesModule, playbackModule, repositoryModule);
     val importerModule = new ImporterModule(configModule.getMainConfiguration(), baseServicesModule, repositoryModule);
 
+    repositoryModule.getClipRepository().warmUp();
     dlnaServerModule.getDlnaServer().startup();
     baseServicesModule.getNetworkingModule().getWebserver().startup();
     importerModule.getImporterService().scheduleImport();
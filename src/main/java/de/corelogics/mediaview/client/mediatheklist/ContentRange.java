@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediatheklist;
+
+import lombok.val;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * The Content-Range header of a partial response, like {@code bytes 0-65535/31457280}.
+ *
+ * @param totalBytes size of the whole file, or -1 if the server didn't tell
+ */
+record ContentRange(long first, long last, long totalBytes) {
+    private static final Pattern BYTES_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+
+    static Optional<ContentRange> parse(String header) {
+        if (null == header) {
+            return Optional.empty();
+        }
+        val matcher = BYTES_RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new ContentRange(
+                Long.parseLong(matcher.group(1)),
+                Long.parseLong(matcher.group(2)),
+                "*".equals(matcher.group(3)) ? -1 : Long.parseLong(matcher.group(3))));
+        } catch (final NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    long length() {
+        return last - first + 1;
+    }
+}
@@ -24,6 +24,7 @@
 
 package de.corelogics.mediaview.client.mediatheklist;
 
+import de.corelogics.mediaview.client.mediatheklist.model.ListVersion;
 import de.corelogics.mediaview.client.mediatheklist.model.MediathekListeMetadata;
 import de.corelogics.mediaview.client.mediatheklist.model.MediathekListeServer;
 import de.corelogics.mediaview.config.MainConfiguration;
@@ -33,6 +34,8 @@ import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
 import org.apache.commons.io.IOUtils;
+import org.tukaani.xz.ArrayCache;
+import org.tukaani.xz.BasicArrayCache;
 import org.tukaani.xz.XZInputStream;
 import org.w3c.dom.Element;
 import org.xml.sax.InputSource;
@@ -45,24 +48,56 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
 
 @Log4j2
 public class MediathekListClient {
+    private static final int STREAMING_BUFFER_SIZE = 64 * 1024;
+    private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final String FULL_LIST_METADATA = "/akt.xml";
+    private static final String DIFF_LIST_METADATA = "/diff.xml";
+
     @NonNull
     private final MainConfiguration mainConfiguration;
 
     @NonNull
     private final HttpClient httpClient;
 
+    // keeps the decoder's dictionary and buffers between imports, instead of re-allocating several MB each time
+    private final ArrayCache xzArrayCache = new BasicArrayCache();
+
+    private final MirrorStatistics mirrorStatistics = new MirrorStatistics();
+
+    private final int segmentSize;
+
     public MediathekListClient(
         MainConfiguration mainConfiguration,
         ShutdownRegistry shutdownRegistry,
         HttpClient httpClient) {
+        this(mainConfiguration, shutdownRegistry, httpClient, SEGMENT_SIZE);
+    }
+
+    MediathekListClient(
+        MainConfiguration mainConfiguration,
+        ShutdownRegistry shutdownRegistry,
+        HttpClient httpClient,
+        int segmentSize) {
         this.mainConfiguration = mainConfiguration;
         this.httpClient = httpClient;
+        this.segmentSize = segmentSize;
         shutdownRegistry.registerShutdown(this::shutdown);
     }
 
@@ -71,35 +106,255 @@ public class MediathekListClient {
         httpClient.shutdownNow();
     }
 
-    private void downloadToTempFile(@NonNull File tempFile) throws IOException {
+    /**
+     * Races the mirrors, best ones first, and downloads from the first one to answer. Mirrors answering shortly after it
+     * with the same file join the download, each fetching different parts of it.
+     *
+     * @return the list, or empty if the fastest mirror reported the known version as current
+     */
+    private Optional<OpenedList> openFastestMirrors(String metadataPath, ListVersion known) throws IOException {
+        val servers = mirrorStatistics.rank(getMediathekListeMetadata(metadataPath).getServers());
+        val raceSize = Math.max(1, mainConfiguration.importListMirrors());
+        for (int from = 0; from < servers.size(); from += raceSize) {
+            val answered = race(servers.subList(from, Math.min(servers.size(), from + raceSize)), known);
+            if (answered.isEmpty()) {
+                continue;
+            }
+            val winner = answered.getFirst();
+            val winnerRange = contentRangeOf(winner.response());
+            val joining = answered.stream()
+                .skip(1)
+                .filter(probe -> winnerRange.isPresent() && isSameFile(winner, probe))
+                .toList();
+            answered.stream()
+                .skip(1)
+                .forEach(probe -> IOUtils.closeQuietly(probe.response().body()));
+            if (winner.response().statusCode() == 304) {
+                IOUtils.closeQuietly(winner.response().body());
+                log.info("List at {} was not modified since the last import", winner.url());
+                return Optional.empty();
+            }
+            log.debug("Mirror {} answered first, after {}ms", winner.url(), TimeUnit.NANOSECONDS.toMillis(winner.nanos()));
+            if (winnerRange.isEmpty()) {
+                return Optional.of(new OpenedList(measured(winner.url(), winner.response().body()), versionOf(winner.response())));
+            }
+            val mirrors = Stream.concat(Stream.of(winner), joining.stream())
+                .map(probe -> new SegmentedInputStream.Mirror(probe.url(), validatorOf(probe.response())))
+                .toList();
+            return Optional.of(new OpenedList(
+                new SegmentedInputStream(
+                    httpClient,
+                    url -> HttpUtils.enhanceRequest(mainConfiguration, HttpRequest.newBuilder().uri(URI.create(url))),
+                    mirrorStatistics,
+                    mirrors,
+                    winnerRange.get().totalBytes(),
+                    segmentSize,
+                    winner.response().body()),
+                versionOf(winner.response())));
+        }
+        throw new IOException("Could not open");
+    }
+
+    /**
+     * @return the usable answers, in the order they arrived. Waits for the first one, and then as long again as that one
+     * took for further answers. Answers arriving even later are closed.
+     */
+    private List<Probe> race(List<MediathekListeServer> servers, ListVersion known) throws IOException {
+        val executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("list-probe-", 0L).factory());
+        val completion = new ExecutorCompletionService<Probe>(executor);
+        servers.forEach(server -> completion.submit(() -> probe(server.getUrl(), known)));
+        executor.shutdown();
+
+        val answered = new ArrayList<Probe>();
+        var pending = servers.size();
+        var deadline = Long.MAX_VALUE;
         try {
-            val serverList = getMediathekListeMetadata();
-            for (val server : serverList.getServers()) {
-                val request =
-                    HttpUtils.enhanceRequest(
-                            mainConfiguration,
-                            HttpRequest.newBuilder().uri(URI.create(server.getUrl())))
-                        .build();
-                val response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
-                if (response.statusCode() == 200) {
-                    try (val output = new FileOutputStream(tempFile)) {
-                        IOUtils.copyLarge(response.body(), output);
+            while (pending > 0) {
+                val done = answered.isEmpty() ?
+                    completion.take() :
+                    completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (null == done) {
+                    break;
+                }
+                pending--;
+                val probe = done.get();
+                if (isUsable(probe)) {
+                    if (answered.isEmpty()) {
+                        deadline = System.nanoTime() + probe.nanos();
+                    }
+                    answered.add(probe);
+                } else {
+                    mirrorStatistics.recordFailure(probe.url());
+                    if (null != probe.response()) {
+                        IOUtils.closeQuietly(probe.response().body());
                     }
-                    return;
                 }
             }
-
-        } catch (final InterruptedException e) {
+        } catch (final InterruptedException | ExecutionException e) {
+            answered.forEach(probe -> IOUtils.closeQuietly(probe.response().body()));
+            executor.shutdownNow();
             throw new IOException(e);
         }
-        throw new IOException("Could not open");
+        if (pending > 0) {
+            val late = pending;
+            Thread.ofVirtual().name("list-probe-closer").start(() -> closeLateProbes(completion, late));
+        }
+        return answered;
+    }
+
+    /**
+     * @return the mirror's answer, or a probe without response if it failed. One failing mirror, even with a malformed
+     * URL, doesn't stop the race.
+     */
+    private Probe probe(String url, ListVersion known) throws InterruptedException {
+        val startedAt = System.nanoTime();
+        try {
+            val requestBuilder =
+                HttpUtils.enhanceRequest(
+                        mainConfiguration,
+                        HttpRequest.newBuilder().uri(URI.create(url)))
+                    .header(HttpUtils.HEADER_RANGE, format("bytes=0-%d", segmentSize - 1));
+            if (null != known.etag()) {
+                requestBuilder.header(HttpUtils.HEADER_IF_NONE_MATCH, known.etag());
+            }
+            if (null != known.lastModified()) {
+                requestBuilder.header(HttpUtils.HEADER_IF_MODIFIED_SINCE, known.lastModified());
+            }
+            val response = httpClient.send(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            return new Probe(url, response, System.nanoTime() - startedAt);
+        } catch (final IOException | RuntimeException e) {
+            log.debug("Could not reach mirror {}: {}", url, e.getMessage());
+            return new Probe(url, null, System.nanoTime() - startedAt);
+        }
+    }
+
+    private static void closeLateProbes(CompletionService<Probe> completion, int late) {
+        try {
+            for (int i = 0; i < late; i++) {
+                val probe = completion.take().get();
+                if (null != probe.response()) {
+                    IOUtils.closeQuietly(probe.response().body());
+                }
+            }
+        } catch (final InterruptedException | ExecutionException e) {
+            log.debug("Stopped waiting for late mirrors", e);
+        }
+    }
+
+    private static boolean isUsable(Probe probe) {
+        if (null == probe.response()) {
+            return false;
+        }
+        return switch (probe.response().statusCode()) {
+            case 200, 304 -> true;
+            // without knowing the total size, the file can't be split into segments
+            case 206 -> contentRangeOf(probe.response()).filter(range -> range.first() == 0 && range.totalBytes() > 0).isPresent();
+            default -> false;
+        };
+    }
+
+    /**
+     * Mirrors have their own ETags, but an identical file has the same size and usually the same modification time.
+     */
+    private static boolean isSameFile(Probe winner, Probe other) {
+        val winnerLastModified = winner.response().headers().firstValue(HttpUtils.HEADER_LAST_MODIFIED);
+        val otherLastModified = other.response().headers().firstValue(HttpUtils.HEADER_LAST_MODIFIED);
+        return other.response().statusCode() == 206 &&
+            contentRangeOf(winner.response()).map(ContentRange::totalBytes)
+                .equals(contentRangeOf(other.response()).map(ContentRange::totalBytes)) &&
+            (winnerLastModified.isEmpty() || otherLastModified.isEmpty() || winnerLastModified.equals(otherLastModified));
     }
 
-    public InputStream openMediathekListeFull() throws IOException {
+    private static Optional<ContentRange> contentRangeOf(HttpResponse<?> response) {
+        if (response.statusCode() != 206) {
+            return Optional.empty();
+        }
+        return response.headers().firstValue(HttpUtils.HEADER_CONTENT_RANGE).flatMap(ContentRange::parse);
+    }
+
+    private static String validatorOf(HttpResponse<?> response) {
+        // If-Range only accepts strong ETags
+        return response.headers().firstValue(HttpUtils.HEADER_ETAG)
+            .filter(etag -> !etag.startsWith("W/"))
+            .or(() -> response.headers().firstValue(HttpUtils.HEADER_LAST_MODIFIED))
+            .orElse(null);
+    }
+
+    private InputStream measured(String url, InputStream body) {
+        val timed = new TimedInputStream(body);
+        return new FilterInputStream(timed) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (timed.getBytesRead() > 0) {
+                        mirrorStatistics.recordTransfer(url, timed.getBytesRead(), timed.getNanosInRead());
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @param known the version of the last imported list, to be sent as conditional request
+     * @return the list, or empty if it didn't change since the known version
+     */
+    public Optional<ListDownload> openMediathekListeFull(ListVersion known) throws IOException {
+        if (mainConfiguration.isFullListStreamingEnabled()) {
+            return openMediathekListeFullStreaming(known);
+        }
+        return openMediathekListeFullBuffered(known);
+    }
+
+    /**
+     * Decompresses the list while it is being received, so that downloading, decompressing and parsing overlap.
+     * The HttpClient fills the body stream asynchronously, the reading thread does decompression and parsing.
+     */
+    Optional<ListDownload> openMediathekListeFullStreaming(ListVersion known) throws IOException {
+        val startedAt = System.nanoTime();
+        val opened = openFastestMirrors(FULL_LIST_METADATA, known);
+        if (opened.isEmpty()) {
+            return Optional.empty();
+        }
+        val compressed = new TimedInputStream(opened.get().body());
+        try {
+            val decompressed = new TimedInputStream(
+                new XZInputStream(new BufferedInputStream(compressed, STREAMING_BUFFER_SIZE), xzArrayCache));
+            return Optional.of(new ListDownload(new FilterInputStream(decompressed) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        logStreamingPhases(startedAt, compressed, decompressed);
+                    }
+                }
+            }, opened.get().version()));
+        } catch (IOException | RuntimeException e) {
+            compressed.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Downloads the whole list to a temporary file first, and decompresses it afterwards. Slower than streaming, but
+     * immune to connections stalling while the list is being parsed. Used as fallback when streaming failed.
+     *
+     * @param known the version of the last imported list, to be sent as conditional request
+     * @return the list, or empty if it didn't change since the known version
+     */
+    public Optional<ListDownload> openMediathekListeFullBuffered(ListVersion known) throws IOException {
+        val opened = openFastestMirrors(FULL_LIST_METADATA, known);
+        if (opened.isEmpty()) {
+            return Optional.empty();
+        }
         val tempFile = File.createTempFile("full-list", ".xml.xz");
         try {
-            downloadToTempFile(tempFile);
-            return new FilterInputStream(new XZInputStream(new BufferedInputStream(new FileInputStream(tempFile)))) {
+            try (val body = opened.get().body(); val output = new FileOutputStream(tempFile)) {
+                IOUtils.copyLarge(body, output);
+            }
+            return Optional.of(new ListDownload(new FilterInputStream(new XZInputStream(new BufferedInputStream(new FileInputStream(tempFile)), xzArrayCache)) {
                 @Override
                 public void close() throws IOException {
                     try {
@@ -108,21 +363,61 @@ public class MediathekListClient {
                         tempFile.delete();
                     }
                 }
-            };
+            }, opened.get().version()));
         } catch (IOException | RuntimeException e) {
             tempFile.delete();
             throw e;
         }
     }
 
+    /**
+     * Opens the diff list, which only contains the entries that changed since the last full list was published. It's
+     * small enough to be streamed without any fallback.
+     */
+    public InputStream openMediathekListeDiff() throws IOException {
+        val compressed = openFastestMirrors(DIFF_LIST_METADATA, ListVersion.UNKNOWN)
+            .orElseThrow(() -> new IOException("Could not open"))
+            .body();
+        try {
+            return new XZInputStream(new BufferedInputStream(compressed, STREAMING_BUFFER_SIZE), xzArrayCache);
+        } catch (IOException | RuntimeException e) {
+            compressed.close();
+            throw e;
+        }
+    }
+
+    private void logStreamingPhases(long startedAt, TimedInputStream compressed, TimedInputStream decompressed) {
+        val totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        val networkMillis = TimeUnit.NANOSECONDS.toMillis(compressed.getNanosInRead());
+        val decompressionMillis = TimeUnit.NANOSECONDS.toMillis(decompressed.getNanosInRead()) - networkMillis;
+        val processingMillis = totalMillis - networkMillis - decompressionMillis;
+        // a download to a file first would have cost the full transfer time before any processing could start
+        val transferMillis = compressed.isEofReached() ?
+            TimeUnit.NANOSECONDS.toMillis(compressed.getEofReachedAtNanos() - startedAt) :
+            networkMillis;
+        log.info("Streamed full list: {} bytes compressed, {} bytes decompressed. Waiting for network: {}ms, decompressing: {}ms, " +
+                "parsing and indexing: {}ms, total: {}ms. Overlapping the transfer saved {}ms.",
+            compressed.getBytesRead(),
+            decompressed.getBytesRead(),
+            networkMillis,
+            decompressionMillis,
+            processingMillis,
+            totalMillis,
+            Math.max(0, transferMillis - networkMillis));
+    }
+
     MediathekListeMetadata getMediathekListeMetadata() throws IOException {
+        return getMediathekListeMetadata(FULL_LIST_METADATA);
+    }
+
+    private MediathekListeMetadata getMediathekListeMetadata(String metadataPath) throws IOException {
         try {
             val docBuilder = DocumentBuilderFactory.newDefaultInstance().newDocumentBuilder();
 
             val request = HttpUtils.enhanceRequest(
                     mainConfiguration,
                     HttpRequest.newBuilder().uri(
-                        URI.create(mainConfiguration.mediathekViewListBaseUrl()).resolve("/akt.xml")))
+                        URI.create(mainConfiguration.mediathekViewListBaseUrl()).resolve(metadataPath)))
                 .build();
             val response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
 
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediatheklist;
+
+import de.corelogics.mediaview.client.mediatheklist.model.MediathekListeServer;
+import lombok.val;
+
+import java.net.URI;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers how fast each mirror delivered lists in recent downloads, so later downloads race the most promising
+ * mirrors first. Mirrors are identified by host, so the full and the diff list share their history.
+ */
+class MirrorStatistics {
+    // weight of the latest measurement in the moving average, older ones fade out within a few downloads
+    private static final double WEIGHT_OF_LATEST = 0.5;
+
+    private final Map<String, Double> bytesPerSecond = new ConcurrentHashMap<>();
+
+    void recordTransfer(String url, long bytes, long nanos) {
+        record(url, bytes * 1e9 / Math.max(1, nanos));
+    }
+
+    void recordFailure(String url) {
+        record(url, 0);
+    }
+
+    /**
+     * @return the servers, fastest first. Mirrors without history rank first, so that every mirror gets measured. Ties
+     * keep the order of the given list.
+     */
+    List<MediathekListeServer> rank(List<MediathekListeServer> servers) {
+        return servers.stream()
+            .sorted(Comparator.comparingDouble(
+                (MediathekListeServer server) -> bytesPerSecond.getOrDefault(mirrorOf(server.getUrl()), Double.MAX_VALUE)).reversed())
+            .toList();
+    }
+
+    private void record(String url, double measured) {
+        bytesPerSecond.merge(
+            mirrorOf(url),
+            measured,
+            (previous, latest) -> previous * (1 - WEIGHT_OF_LATEST) + latest * WEIGHT_OF_LATEST);
+    }
+
+    private static String mirrorOf(String url) {
+        try {
+            val host = URI.create(url).getHost();
+            return null == host ? url : host;
+        } catch (final IllegalArgumentException e) {
+            return url;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.corelogics.mediaview.client.mediatheklist;
+
+import de.corelogics.mediaview.util.HttpUtils;
+import lombok.extern.log4j.Log4j2;
+import lombok.val;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * Reads a list as consecutive segments, which are downloaded in parallel from mirrors serving identical content.
+ * Every mirror has a worker taking the next missing segment, so faster mirrors end up serving more of the list. Workers
+ * stay at most a window of segments ahead of the reader. A dropped connection is resumed from the last received byte,
+ * on another mirror if its own one keeps failing.
+ */
+@Log4j2
+class SegmentedInputStream extends InputStream {
+    private static final int MAX_ATTEMPTS_PER_MIRROR = 3;
+    private static final int SEGMENTS_AHEAD_PER_MIRROR = 2;
+
+    /**
+     * @param validator the ETag or Last-Modified this mirror served the list with, sent as If-Range so that a list
+     *                  changing in the middle of a download isn't mixed up with the old one. May be null.
+     */
+    record Mirror(String url, String validator) {
+    }
+
+    private final HttpClient httpClient;
+    private final Function<String, HttpRequest.Builder> requestFactory;
+    private final MirrorStatistics mirrorStatistics;
+    private final List<Mirror> mirrors;
+    private final long totalBytes;
+    private final int segmentSize;
+    private final AtomicReferenceArray<CompletableFuture<byte[]>> segments;
+    private final AtomicInteger nextSegment = new AtomicInteger(1);
+    private final Semaphore window;
+    private final Set<String> failedMirrors = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("list-segment-", 0L).factory());
+
+    private int currentIndex;
+    private byte[] current;
+    private int position;
+    private boolean closed;
+
+    /**
+     * @param mirrors           the mirrors to download from, the first one being the one that delivers the first segment
+     * @param firstSegmentBody  the already opened body of the first segment's response
+     */
+    SegmentedInputStream(
+        HttpClient httpClient,
+        Function<String, HttpRequest.Builder> requestFactory,
+        MirrorStatistics mirrorStatistics,
+        List<Mirror> mirrors,
+        long totalBytes,
+        int segmentSize,
+        InputStream firstSegmentBody) {
+        this.httpClient = httpClient;
+        this.requestFactory = requestFactory;
+        this.mirrorStatistics = mirrorStatistics;
+        this.mirrors = List.copyOf(mirrors);
+        this.totalBytes = totalBytes;
+        this.segmentSize = segmentSize;
+        val segmentCount = (int) ((totalBytes + segmentSize - 1) / segmentSize);
+        this.segments = new AtomicReferenceArray<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.set(i, new CompletableFuture<>());
+        }
+        // the first segment is already on its way, and takes one place of the window
+        this.window = new Semaphore(Math.max(1, SEGMENTS_AHEAD_PER_MIRROR * this.mirrors.size() - 1));
+        log.debug("Downloading {} bytes in {} segments from {}", totalBytes, segmentCount, this.mirrors);
+        workers.execute(() -> download(0, this.mirrors.getFirst(), firstSegmentBody));
+        this.mirrors.forEach(mirror -> workers.execute(() -> work(mirror)));
+    }
+
+    private void work(Mirror mirror) {
+        try {
+            while (!failedMirrors.contains(mirror.url())) {
+                window.acquire();
+                val index = nextSegment.getAndIncrement();
+                if (index >= segments.length()) {
+                    window.release();
+                    return;
+                }
+                download(index, mirror, null);
+            }
+            if (failedMirrors.size() == mirrors.size()) {
+                failRemainingSegments();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void failRemainingSegments() {
+        for (int index = nextSegment.getAndSet(segments.length()); index < segments.length(); index++) {
+            val segment = segments.get(index);
+            if (null != segment) {
+                segment.completeExceptionally(new IOException("All mirrors failed"));
+            }
+        }
+    }
+
+    private void download(int index, Mirror preferred, InputStream openedBody) {
+        val segment = segments.get(index);
+        if (null == segment) {
+            return;
+        }
+        try {
+            segment.complete(fetchSegment(index, preferred, openedBody));
+        } catch (final IOException e) {
+            segment.completeExceptionally(e);
+        } catch (final InterruptedException e) {
+            segment.completeExceptionally(new InterruptedIOException("Download was interrupted"));
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] fetchSegment(int index, Mirror preferred, InputStream openedBody) throws IOException, InterruptedException {
+        val first = (long) index * segmentSize;
+        val buffer = new byte[(int) (Math.min(totalBytes, first + segmentSize) - first)];
+        var received = 0;
+        var body = openedBody;
+        for (val mirror : preferredFirst(preferred)) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS_PER_MIRROR && received < buffer.length; attempt++) {
+                val startedAt = System.nanoTime();
+                val receivedBefore = received;
+                try (val in = null != body ? body : openRange(mirror, first + received, first + buffer.length - 1)) {
+                    body = null;
+                    int read;
+                    while (received < buffer.length && (read = in.read(buffer, received, buffer.length - received)) >= 0) {
+                        received += read;
+                    }
+                    if (received < buffer.length) {
+                        log.debug("Connection to {} ended at byte {} of segment {}, resuming", mirror.url(), received, index);
+                    }
+                } catch (final IOException e) {
+                    body = null;
+                    log.debug("Downloading segment {} from {} failed at byte {}: {}", index, mirror.url(), received, e.getMessage());
+                }
+                if (received > receivedBefore) {
+                    mirrorStatistics.recordTransfer(mirror.url(), received - receivedBefore, System.nanoTime() - startedAt);
+                }
+            }
+            if (received == buffer.length) {
+                return buffer;
+            }
+            if (failedMirrors.add(mirror.url())) {
+                log.info("Mirror {} keeps failing, continuing with the other mirrors", mirror.url());
+                mirrorStatistics.recordFailure(mirror.url());
+            }
+        }
+        throw new IOException(format("Could not download bytes %d-%d from any mirror", first + received, first + buffer.length - 1));
+    }
+
+    private List<Mirror> preferredFirst(Mirror preferred) {
+        return Stream.concat(
+                Stream.of(preferred),
+                mirrors.stream().filter(m -> !m.equals(preferred) && !failedMirrors.contains(m.url())))
+            .toList();
+    }
+
+    private InputStream openRange(Mirror mirror, long first, long last) throws IOException, InterruptedException {
+        val request = requestFactory.apply(mirror.url())
+            .header(HttpUtils.HEADER_RANGE, format("bytes=%d-%d", first, last));
+        if (null != mirror.validator()) {
+            request.header(HttpUtils.HEADER_IF_RANGE, mirror.validator());
+        }
+        val response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        val range = response.headers().firstValue(HttpUtils.HEADER_CONTENT_RANGE).flatMap(ContentRange::parse);
+        if (response.statusCode() != 206 || range.filter(r -> r.first() == first && r.last() == last).isEmpty()) {
+            IOUtils.closeQuietly(response.body());
+            throw new IOException(format(
+                "Expected bytes %d-%d, but got status %d with range %s",
+                first,
+                last,
+                response.statusCode(),
+                range.map(ContentRange::toString).orElse("none")));
+        }
+        return response.body();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureCurrentSegment()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureCurrentSegment()) {
+            return -1;
+        }
+        val count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return null == current ? 0 : current.length - position;
+    }
+
+    private boolean ensureCurrentSegment() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (null == current || position == current.length) {
+            if (null != current) {
+                current = null;
+                currentIndex++;
+                window.release();
+            }
+            if (currentIndex >= segments.length()) {
+                return false;
+            }
+            try {
+                current = segments.getAndSet(currentIndex, null).get();
+                position = 0;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the next segment");
+            } catch (final ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            current = null;
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediatheklist;
+
+import lombok.Getter;
+import lombok.val;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read through it, and the time spent waiting for the underlying stream.
+ */
+@Getter
+class TimedInputStream extends FilterInputStream {
+    private long nanosInRead;
+    private long bytesRead;
+    private long eofReachedAtNanos = -1;
+
+    TimedInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        val started = System.nanoTime();
+        try {
+            val read = super.read();
+            countRead(read < 0 ? -1 : 1);
+            return read;
+        } finally {
+            nanosInRead += System.nanoTime() - started;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        val started = System.nanoTime();
+        try {
+            val read = super.read(b, off, len);
+            countRead(read);
+            return read;
+        } finally {
+            nanosInRead += System.nanoTime() - started;
+        }
+    }
+
+    public boolean isEofReached() {
+        return eofReachedAtNanos >= 0;
+    }
+
+    private void countRead(int read) {
+        if (read < 0) {
+            if (eofReachedAtNanos < 0) {
+                eofReachedAtNanos = System.nanoTime();
+            }
+        } else {
+            bytesRead += read;
+        }
+    }
+}
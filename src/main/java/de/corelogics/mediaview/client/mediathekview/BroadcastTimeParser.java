@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediathekview;
+
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Parses the list's date ({@code dd.MM.yyyy}) and time ({@code HH:mm[:ss]}) columns. The list only contains a few
+ * thousand distinct dates, so the zone offset is looked up once per date and cached in a small direct-mapped table.
+ * Days with an offset transition and anything not matching the fixed layout are handed to a {@link DateTimeFormatter}.
+ * <p>
+ * Instances are thread safe.
+ */
+final class BroadcastTimeParser {
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm[:ss]");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm[:ss]");
+    private static final int CACHE_SIZE = 4096;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    @RequiredArgsConstructor
+    private static final class CachedDay {
+        private final int key;
+        private final LocalDate date;
+        private final ZoneOffset offset;
+        private final boolean uniformOffset;
+    }
+
+    private final ZoneId zone;
+    // entries are immutable, so racing writers at worst compute the same day twice
+    private final CachedDay[] cachedDays = new CachedDay[CACHE_SIZE];
+
+    BroadcastTimeParser(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * @return the broadcast time, using the current date or time for missing values
+     */
+    ZonedDateTime parse(String date, String time) {
+        if (null != date && null != time) {
+            val day = cachedDay(date);
+            val secondOfDay = parseSecondOfDay(time);
+            if (null != day && day.uniformOffset && secondOfDay >= 0) {
+                return ZonedDateTime.ofInstant(
+                    LocalDateTime.of(day.date, LocalTime.ofSecondOfDay(secondOfDay)), day.offset, zone);
+            }
+        }
+        return parseWithFormatter(date, time);
+    }
+
+    /**
+     * @return whether {@link #parse} accepts the values. Values matching the fixed layout are checked without
+     * building a result.
+     */
+    boolean canParse(String date, String time) {
+        if (null != date && null != time) {
+            val day = cachedDay(date);
+            if (null != day && day.uniformOffset && parseSecondOfDay(time) >= 0) {
+                return true;
+            }
+        }
+        try {
+            parseWithFormatter(date, time);
+            return true;
+        } catch (final DateTimeException e) {
+            return false;
+        }
+    }
+
+    private ZonedDateTime parseWithFormatter(String date, String time) {
+        val now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        return LocalDateTime.from(DATE_TIME_FORMAT.parse(
+                (null == date ? DATE_FORMAT.format(now) : date) + " " + (null == time ? TIME_FORMAT.format(now) : time)))
+            .atZone(zone);
+    }
+
+    private CachedDay cachedDay(String date) {
+        if (date.length() != 10 || date.charAt(2) != '.' || date.charAt(5) != '.') {
+            return null;
+        }
+        val day = parseDigits(date, 0, 2);
+        val month = parseDigits(date, 3, 5);
+        val year = parseDigits(date, 6, 10);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        val key = year * 10000 + month * 100 + day;
+        val slot = (key ^ (key >>> 12)) & (CACHE_SIZE - 1);
+        var cached = cachedDays[slot];
+        if (null == cached || cached.key != key) {
+            cached = computeDay(key, LocalDate.of(year, month, day));
+            cachedDays[slot] = cached;
+        }
+        return cached;
+    }
+
+    private CachedDay computeDay(int key, LocalDate date) {
+        val rules = zone.getRules();
+        val startOfDay = date.atStartOfDay(zone);
+        val nextTransition = rules.nextTransition(startOfDay.toInstant());
+        val uniformOffset = startOfDay.toLocalTime().equals(LocalTime.MIDNIGHT)
+            && (null == nextTransition || nextTransition.toEpochSecond() >= startOfDay.toEpochSecond() + SECONDS_PER_DAY);
+        return new CachedDay(key, date, startOfDay.getOffset(), uniformOffset);
+    }
+
+    /**
+     * @return the second of day, or -1 if the value does not match {@code HH:mm[:ss]}
+     */
+    private static int parseSecondOfDay(String time) {
+        if ((time.length() != 5 && time.length() != 8) || time.charAt(2) != ':') {
+            return -1;
+        }
+        val hour = parseDigits(time, 0, 2);
+        val minute = parseDigits(time, 3, 5);
+        var second = 0;
+        if (time.length() == 8) {
+            if (time.charAt(5) != ':') {
+                return -1;
+            }
+            second = parseDigits(time, 6, 8);
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return -1;
+        }
+        return hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * @return the decimal value of the given range, or -1 if it contains anything but ASCII digits
+     */
+    private static int parseDigits(String in, int from, int to) {
+        var value = 0;
+        for (var i = from; i < to; i++) {
+            val digit = in.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -36,7 +36,7 @@ import java.time.ZonedDateTime;
 @ToString()
 public class ClipEntry {
     @EqualsAndHashCode.Exclude
-    private final String id;
+    private final long id;
 
     private final String title;
     private final String containedIn;
@@ -48,6 +48,14 @@ public class ClipEntry {
     private final String duration;
 
     public ClipEntry(String channelName, String containedIn, ZonedDateTime broadcastedAt, String title, String duration, long size, String url, String urlHd) {
+        this(HashingUtils.idHash(channelName, bestUrl(url, urlHd)), channelName, containedIn, broadcastedAt, title, duration, size, url, urlHd);
+    }
+
+    /**
+     * @param id the clip's ID as created before, so it isn't hashed again
+     */
+    public ClipEntry(long id, String channelName, String containedIn, ZonedDateTime broadcastedAt, String title, String duration, long size, String url, String urlHd) {
+        this.id = id;
         this.containedIn = containedIn;
         this.title = title;
         this.broadcastedAt = broadcastedAt;
@@ -56,14 +64,17 @@ public class ClipEntry {
         this.url = url;
         this.urlHd = urlHd;
         this.duration = duration;
-        this.id = createId();
     }
 
-    public String createId() {
+    public long createId() {
         return HashingUtils.idHash(this.channelName, getBestUrl());
     }
 
     public String getBestUrl() {
+        return bestUrl(url, urlHd);
+    }
+
+    private static String bestUrl(String url, String urlHd) {
         return null != urlHd && !urlHd.isBlank() ? urlHd : url;
     }
 }
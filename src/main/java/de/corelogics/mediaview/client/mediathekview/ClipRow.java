@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediathekview;
+
+import lombok.extern.log4j.Log4j2;
+import lombok.val;
+
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * One entry of the list, as it was read by the tokenizer. Values that the list leaves empty to mean "same as before"
+ * are already resolved, so rows can be turned into {@link ClipEntry}s independently of each other, on any thread.
+ */
+@Log4j2
+public record ClipRow(
+    String channelName,
+    String containedIn,
+    String title,
+    String date,
+    String time,
+    String duration,
+    String sizeMb,
+    String url,
+    String urlHd) {
+    private static final ZoneId ZONE_BERLIN = ZoneId.of("Europe/Berlin");
+    private static final BroadcastTimeParser BROADCAST_TIME_PARSER = new BroadcastTimeParser(ZONE_BERLIN);
+
+    public Optional<ClipEntry> toClipEntry() {
+        return toClipEntry(UnaryOperator.identity());
+    }
+
+    /**
+     * @param names maps channel and show names to canonical instances, so repeated names share one String
+     */
+    public Optional<ClipEntry> toClipEntry(UnaryOperator<String> names) {
+        try {
+            val broadcastTime = BROADCAST_TIME_PARSER.parse(date, time);
+            return Optional.of(new ClipEntry(
+                null == channelName ? "" : names.apply(channelName),
+                null == containedIn ? "" : names.apply(cleanString(containedIn)),
+                broadcastTime,
+                null == title ? "" : cleanString(title),
+                null == duration ? "" : duration,
+                parseLong(sizeMb) * 1024 * 1024,
+                null == url ? "" : url,
+                patchUrl(null == url ? "" : url, null == urlHd ? "" : urlHd)));
+        } catch (final RuntimeException e) {
+            log.warn("Skipping unreadable list entry {}: {}", this, e.toString());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return whether {@link #toClipEntry()} turns this row into an entry. Checked without building one.
+     */
+    boolean isReadable() {
+        if (!BROADCAST_TIME_PARSER.canParse(date, time)) {
+            return false;
+        }
+        val urlPatch = null == urlHd ? "" : urlHd;
+        val pipeIndex = urlPatch.indexOf('|');
+        try {
+            return pipeIndex < 1 || patchLocation(urlPatch, pipeIndex) >= 0;
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes quotes and copyright notices (up to the end of the line), marks a leading non-alphanumeric character
+     * with a '#' and trims the result. Most titles need none of this, so they are returned without any copying.
+     */
+    static String cleanString(String in) {
+        var cleaned = in;
+        if (containsStrippedCharacter(in)) {
+            val sb = new StringBuilder(in.length());
+            for (var i = 0; i < in.length(); i++) {
+                val c = in.charAt(i);
+                if (c == '©') {
+                    while (i + 1 < in.length() && !isLineTerminator(in.charAt(i + 1))) {
+                        i++;
+                    }
+                } else if (c != '"' && c != '”') {
+                    sb.append(c);
+                }
+            }
+            cleaned = sb.toString();
+        }
+        if (!cleaned.isEmpty() && !isAsciiAlphanumeric(cleaned.charAt(0))) {
+            cleaned = "#" + cleaned.substring(Character.charCount(cleaned.codePointAt(0)));
+        }
+        return cleaned.trim();
+    }
+
+    private static boolean containsStrippedCharacter(String in) {
+        for (var i = 0; i < in.length(); i++) {
+            val c = in.charAt(i);
+            if (c == '"' || c == '”' || c == '©') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isAsciiAlphanumeric(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    private static long parseLong(String stringValue) {
+        if (null != stringValue && !stringValue.isBlank()) {
+            try {
+                return Long.parseLong(stringValue.trim());
+            } catch (NumberFormatException e) {
+                log.debug("Unreadable size: {}", stringValue);
+            }
+        }
+        return 0L;
+    }
+
+    private static String patchUrl(String url, String urlPatch) {
+        val pipeIndex = urlPatch.indexOf('|');
+        if (pipeIndex < 1) {
+            return urlPatch;
+        }
+        val location = patchLocation(urlPatch, pipeIndex);
+        val patch = urlPatch.substring(pipeIndex + 1);
+
+        if (location >= url.length()) {
+            return url;
+        }
+        return url.substring(0, location) + patch;
+    }
+
+    private static int patchLocation(String urlPatch, int pipeIndex) {
+        return Integer.parseInt(urlPatch, 0, pipeIndex, 10);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediathekview;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Tokenizes the list into {@link ClipRow}s. This is strictly sequential, as the list refers to previous entries for
+ * repeated values. It only refers back to readable entries: the values of an entry that can't be turned into a clip
+ * are never repeated.
+ * <p>
+ * Column positions are resolved once from the list's header. Only values of columns that are actually used are
+ * materialized as Strings; all others are skipped by the tokenizer.
+ */
+class ClipRowIterator implements Iterator<ClipRow> {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int UNUSED_COLUMN = -1;
+
+    @RequiredArgsConstructor
+    private enum Column {
+        CHANNEL("Sender"),
+        CONTAINED_IN("Thema"),
+        TITLE("Titel"),
+        DATE("Datum"),
+        TIME("Zeit"),
+        DURATION("Dauer"),
+        SIZE_MB("Größe [MB]"),
+        URL("Url"),
+        URL_HD("Url HD");
+
+        private final String header;
+    }
+
+    private final InputStream in;
+    @Getter
+    private FilmlisteMetaData metaData = null;
+    private final JsonParser jParser;
+    private int[] slotOfColumn = null;
+    private final String[] slots = new String[Column.values().length];
+    private ClipRow currentRow = null;
+    // the latest row turning into a clip. Empty values repeat its values.
+    private ClipRow previousReadableRow = null;
+
+    ClipRowIterator(InputStream in) throws IOException {
+        this.in = in;
+        this.jParser = JSON_FACTORY.createParser(in);
+
+        for (var token = jParser.nextToken(); null != token && null == currentRow; token = jParser.nextToken()) {
+            if (token == JsonToken.FIELD_NAME) {
+                if ("Filmliste".equals(jParser.currentName())) {
+                    if (null == metaData) {
+                        metaData = parseMetaData();
+                    } else if (null == slotOfColumn) {
+                        slotOfColumn = resolveSlots(parseFieldList());
+                    }
+                } else if ("X".equals(jParser.currentName()) && null != slotOfColumn) {
+                    currentRow = parseRow();
+                }
+            }
+        }
+        if (null == currentRow) {
+            in.close();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return null != currentRow;
+    }
+
+    @Override
+    public ClipRow next() {
+        if (null == currentRow) {
+            throw new NoSuchElementException();
+        }
+        val current = currentRow;
+        readNextRow();
+        return current;
+    }
+
+    private void readNextRow() {
+        try {
+            for (var token = jParser.nextToken(); null != token; token = jParser.nextToken()) {
+                if ("X".equals(jParser.currentName())) {
+                    this.currentRow = parseRow();
+                    return;
+                }
+            }
+            currentRow = null;
+            in.close();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private FilmlisteMetaData parseMetaData() throws IOException {
+        val it = parseFieldList().iterator();
+        return new FilmlisteMetaData(
+            it.hasNext() ? it.next() : "",
+            it.hasNext() ? it.next() : "",
+            it.hasNext() ? it.next() : "",
+            it.hasNext() ? it.next() : "",
+            it.hasNext() ? it.next() : "");
+    }
+
+    private List<String> parseFieldList() throws IOException {
+        val fields = new ArrayList<String>();
+        for (var token = jParser.nextToken(); null != token && token != JsonToken.END_ARRAY; token = jParser.nextToken()) {
+            if (token == JsonToken.VALUE_STRING) {
+                fields.add(jParser.getValueAsString());
+            }
+        }
+        return fields;
+    }
+
+    private static int[] resolveSlots(List<String> headers) {
+        val slotOfColumn = new int[headers.size()];
+        Arrays.fill(slotOfColumn, UNUSED_COLUMN);
+        for (val column : Column.values()) {
+            val index = headers.indexOf(column.header);
+            if (index >= 0) {
+                slotOfColumn[index] = column.ordinal();
+            }
+        }
+        return slotOfColumn;
+    }
+
+    private ClipRow parseRow() throws IOException {
+        Arrays.fill(slots, null);
+        var columnIndex = 0;
+        for (var token = jParser.nextToken(); null != token && token != JsonToken.END_ARRAY; token = jParser.nextToken()) {
+            if (token == JsonToken.VALUE_STRING) {
+                if (columnIndex < slotOfColumn.length && slotOfColumn[columnIndex] != UNUSED_COLUMN) {
+                    val value = jParser.getText().trim();
+                    if (!value.isBlank()) {
+                        slots[slotOfColumn[columnIndex]] = value;
+                    }
+                }
+                columnIndex++;
+            }
+        }
+        if (null != currentRow && currentRow.isReadable()) {
+            previousReadableRow = currentRow;
+        }
+        val previous = previousReadableRow;
+        return new ClipRow(
+            valueOrElse(Column.CHANNEL, null == previous ? null : previous.channelName()),
+            valueOrElse(Column.CONTAINED_IN, null == previous ? null : previous.containedIn()),
+            valueOrElse(Column.TITLE, null == previous ? null : previous.title()),
+            valueOrElse(Column.DATE, null == previous ? null : previous.date()),
+            valueOrElse(Column.TIME, null == previous ? null : previous.time()),
+            slots[Column.DURATION.ordinal()],
+            slots[Column.SIZE_MB.ordinal()],
+            slots[Column.URL.ordinal()],
+            slots[Column.URL_HD.ordinal()]);
+    }
+
+    private String valueOrElse(Column column, String fallback) {
+        val value = slots[column.ordinal()];
+        return null == value ? fallback : value;
+    }
+}
@@ -27,11 +27,16 @@ package de.corelogics.mediaview.client.mediathekview;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.Optional;
 import java.util.stream.Stream;
 
 @AllArgsConstructor
 @Getter()
 public class MediathekListe {
-    private final Stream<ClipEntry> stream;
+    private final Stream<ClipRow> rows;
     private final FilmlisteMetaData metaData;
+
+    public Stream<ClipEntry> getStream() {
+        return rows.map(ClipRow::toClipEntry).flatMap(Optional::stream);
+    }
 }
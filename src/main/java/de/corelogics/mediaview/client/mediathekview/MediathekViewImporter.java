@@ -34,7 +34,7 @@ import java.util.stream.StreamSupport;
 
 public class MediathekViewImporter {
     public MediathekListe createList(InputStream input) throws IOException {
-        val iterator = new ClipIterator(input);
+        val iterator = new ClipRowIterator(input);
         return new MediathekListe(
             StreamSupport.stream(
                 Spliterators.spliteratorUnknownSize(iterator,
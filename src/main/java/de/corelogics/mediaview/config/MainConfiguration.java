@@ -60,10 +60,58 @@ public class MainConfiguration {
         return ofNullable(configAccessor.get("DATABASE_LOCATION", null));
     }
 
+    public int dbCommitIntervalSeconds() {
+        return configAccessor.get("DATABASE_COMMIT_INTERVAL_SECONDS", 60);
+    }
+
+    public int dbRefreshIntervalMillis() {
+        return configAccessor.get("DATABASE_REFRESH_INTERVAL_MILLIS", 1000);
+    }
+
+    public boolean isDbMemoryMapped() {
+        return configAccessor.get("DATABASE_MEMORY_MAPPED", false);
+    }
+
+    public boolean isDbPreloadEnabled() {
+        return configAccessor.get("DATABASE_PRELOAD", false);
+    }
+
+    public boolean isDbPartitioned() {
+        return configAccessor.get("DATABASE_PARTITIONED", false);
+    }
+
+    public int dbSearchThreads() {
+        return configAccessor.get("DATABASE_SEARCH_THREADS", 1);
+    }
+
+    public int dbSlowQueryMillis() {
+        return configAccessor.get("DATABASE_SLOW_QUERY_MILLIS", 500);
+    }
+
     public int updateIntervalFullHours() {
         return configAccessor.get("UPDATEINTERVAL_FULL_HOURS", 24);
     }
 
+    public int updateIntervalDiffMinutes() {
+        return configAccessor.get("UPDATEINTERVAL_DIFF_MINUTES", 15);
+    }
+
+    public boolean isFullListStreamingEnabled() {
+        return configAccessor.get("IMPORT_FULL_STREAMING", true);
+    }
+
+    public boolean isFullImportRebuildEnabled() {
+        return configAccessor.get("IMPORT_FULL_REBUILD", false);
+    }
+
+    public int importListMirrors() {
+        return configAccessor.get("IMPORT_LIST_MIRRORS", 3);
+    }
+
+    public int importThreads() {
+        return configAccessor.get("IMPORT_THREADS", Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
     public Optional<String> publicBaseUrl() {
         return ofNullable(configAccessor.get("PUBLIC_BASE_URL", null));
     }
@@ -26,14 +26,19 @@ package de.corelogics.mediaview.service.base;
 
 import de.corelogics.mediaview.config.MainConfiguration;
 import de.corelogics.mediaview.service.base.lifecycle.ShutdownRegistry;
+import de.corelogics.mediaview.service.base.lucene.IndexMetricsServer;
 import de.corelogics.mediaview.service.base.lucene.LuceneDirectory;
 import de.corelogics.mediaview.service.base.networking.NetworkingModule;
 import de.corelogics.mediaview.service.base.threading.BaseThreading;
+import de.corelogics.mediaview.service.repository.clip.ClipRepository;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.val;
 import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.concurrent.TimeUnit;
 
 @RequiredArgsConstructor
@@ -44,7 +49,7 @@ public class BaseServicesModule {
     private final BaseThreading baseThreading = new BaseThreading();
 
     @Getter(lazy = true)
-    private final LuceneDirectory luceneDirectory = new LuceneDirectory(mainConfiguration);
+    private final LuceneDirectory luceneDirectory = createLuceneDirectory();
 
     @Getter(lazy = true)
     private final NetworkingModule networkingModule = new NetworkingModule(mainConfiguration, baseThreading, shutdownRegistry);
@@ -56,4 +61,17 @@ public class BaseServicesModule {
         .readTimeout(10, TimeUnit.SECONDS)
         .connectTimeout(5, TimeUnit.SECONDS)
         .build();
+
+    private LuceneDirectory createLuceneDirectory() {
+        val directory = new LuceneDirectory(mainConfiguration, ClipRepository.INDEX_SORT, baseThreading.getSearchExecutor());
+        new IndexMetricsServer(getNetworkingModule().getWebserver(), directory.getMetrics());
+        shutdownRegistry.registerShutdown(() -> {
+            try {
+                directory.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Could not close index on shutdown", e);
+            }
+        });
+        return directory;
+    }
 }
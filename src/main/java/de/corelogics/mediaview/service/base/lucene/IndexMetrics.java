@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.service.base.lucene;
+
+import lombok.val;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Durations, hits and loaded stored documents of index searches and updates, per operation and call site, counted
+ * since start. They're written in the Prometheus text format.
+ */
+public class IndexMetrics {
+    public static final String OPERATION_SEARCH = "search";
+    public static final String OPERATION_UPDATE = "update";
+
+    private static final long[] BUCKET_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private record Key(String operation, String callSite) {
+    }
+
+    private static final class Series {
+        // the last bucket counts everything slower than the slowest bound
+        private final LongAdder[] buckets = new LongAdder[BUCKET_MILLIS.length + 1];
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder storedDocuments = new LongAdder();
+
+        private Series() {
+            for (var i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+    }
+
+    private final Map<Key, Series> series = new ConcurrentHashMap<>();
+
+    void record(String operation, String callSite, long nanos, long hits, long storedDocuments) {
+        val s = series.computeIfAbsent(new Key(operation, callSite), k -> new Series());
+        var bucket = 0;
+        while (bucket < BUCKET_MILLIS.length && nanos > TimeUnit.MILLISECONDS.toNanos(BUCKET_MILLIS[bucket])) {
+            bucket++;
+        }
+        s.buckets[bucket].increment();
+        s.nanos.add(nanos);
+        s.hits.add(hits);
+        s.storedDocuments.add(storedDocuments);
+    }
+
+    /**
+     * @return the number of recorded operations of the call site
+     */
+    public long count(String operation, String callSite) {
+        return sum(operation, callSite, s -> Stream.of(s.buckets).mapToLong(LongAdder::sum).sum());
+    }
+
+    /**
+     * @return the number of hits found by the call site's searches
+     */
+    public long hits(String operation, String callSite) {
+        return sum(operation, callSite, s -> s.hits.sum());
+    }
+
+    /**
+     * @return the number of stored documents loaded by the call site's searches
+     */
+    public long storedDocuments(String operation, String callSite) {
+        return sum(operation, callSite, s -> s.storedDocuments.sum());
+    }
+
+    private long sum(String operation, String callSite, ToLongFunction<Series> value) {
+        val s = series.get(new Key(operation, callSite));
+        return null == s ? 0 : value.applyAsLong(s);
+    }
+
+    public void writePrometheus(Appendable out) throws IOException {
+        val sorted = series.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey(Comparator.comparing(Key::operation).thenComparing(Key::callSite)))
+            .toList();
+
+        out.append("# HELP mediaview_index_duration_seconds Duration of index searches and updates.\n");
+        out.append("# TYPE mediaview_index_duration_seconds histogram\n");
+        for (val entry : sorted) {
+            val labels = labels(entry.getKey());
+            val s = entry.getValue();
+            // all lines of a call site are derived from the buckets, so they agree while operations are recorded
+            var cumulative = 0L;
+            for (var i = 0; i < s.buckets.length; i++) {
+                cumulative += s.buckets[i].sum();
+                val bound = i < BUCKET_MILLIS.length ? Double.toString(BUCKET_MILLIS[i] / 1000d) : "+Inf";
+                out.append("mediaview_index_duration_seconds_bucket{").append(labels)
+                    .append(",le=\"").append(bound).append("\"} ")
+                    .append(Long.toString(cumulative)).append('\n');
+            }
+            out.append("mediaview_index_duration_seconds_sum{").append(labels).append("} ")
+                .append(Double.toString(s.nanos.sum() / 1e9)).append('\n');
+            out.append("mediaview_index_duration_seconds_count{").append(labels).append("} ")
+                .append(Long.toString(cumulative)).append('\n');
+        }
+        writeCounter(out, sorted, "mediaview_index_hits_total", "Hits found by index searches.", s -> s.hits.sum());
+        writeCounter(out, sorted, "mediaview_index_stored_documents_total", "Stored documents loaded by index searches.",
+            s -> s.storedDocuments.sum());
+    }
+
+    private static void writeCounter(Appendable out, Iterable<Map.Entry<Key, Series>> sorted, String name, String help,
+                                     ToLongFunction<Series> value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (val entry : sorted) {
+            if (OPERATION_SEARCH.equals(entry.getKey().operation())) {
+                out.append(name).append('{').append(labels(entry.getKey())).append("} ")
+                    .append(Long.toString(value.applyAsLong(entry.getValue()))).append('\n');
+            }
+        }
+    }
+
+    private static String labels(Key key) {
+        return "operation=\"" + escape(key.operation()) + "\",call_site=\"" + escape(key.callSite()) + "\"";
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -24,34 +24,69 @@
 
 package de.corelogics.mediaview.service.base.lucene;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import de.corelogics.mediaview.config.MainConfiguration;
 import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.FilterCodec;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.bloom.BloomFilteringPostingsFormat;
+import org.apache.lucene.codecs.perfield.PerFieldPostingsFormat;
 import org.apache.lucene.document.*;
 import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
 import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.util.BytesRef;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 
 @Log4j2
-public class LuceneDirectory {
+public class LuceneDirectory implements PartitionedIndex, Closeable {
     public static final String DOCUMENT_FIELD_TYPE = "__type__";
     public static final String DOCUMENT_FIELD_VERSION = "__schema_version__";
     public static final String DOCUMENT_FIELD_VERSION_SORTED = "__schema_version$$sorted";
@@ -85,23 +120,124 @@ public class LuceneDirectory {
         TYPE_DOCVALUES_TEXT.freeze();
     }
 
+    // the ID field of all repositories. Documents are replaced by their ID.
+    private static final String ID_TERM_FIELD = "id$$term";
+
+    /**
+     * Keeps a bloom filter of the IDs in each segment. Most IDs written by an import are either new or in one segment
+     * only, so most segments are skipped without reading their terms dictionary.
+     */
+    private static final class IdBloomFilterCodec extends FilterCodec {
+        private final PostingsFormat postingsFormat;
+
+        IdBloomFilterCodec(Codec delegate) {
+            // written segments name the delegate, which reads the ID field with the bloom filter by its format's name
+            super(delegate.getName(), delegate);
+            val delegateFormats = (PerFieldPostingsFormat) delegate.postingsFormat();
+            val idFormat = new BloomFilteringPostingsFormat(delegateFormats.getPostingsFormatForField(ID_TERM_FIELD));
+            this.postingsFormat = new PerFieldPostingsFormat() {
+                @Override
+                public PostingsFormat getPostingsFormatForField(String field) {
+                    return ID_TERM_FIELD.equals(field) ? idFormat : delegateFormats.getPostingsFormatForField(field);
+                }
+            };
+        }
+
+        @Override
+        public PostingsFormat postingsFormat() {
+            return postingsFormat;
+        }
+    }
+
+    private static final Codec CODEC = new IdBloomFilterCodec(Codec.getDefault());
+
+    private static final int MAX_RECURRING_VALUES = 20_000;
+    // smaller slices aren't worth a thread of their own
+    private static final int MIN_DOCS_PER_SLICE = 50_000;
+    private static final int MAX_LOGGED_QUERIES = 5;
+    private static final int MAX_LOGGED_QUERY_LENGTH = 500;
+    private static final String REBUILD_SUFFIX = "-rebuild";
+    private static final String PARTITIONS_SUFFIX = "-partitions";
+    // doc values (sorting, facets) and the terms dictionary are what browsing reads first
+    private static final Set<String> PRELOADED_EXTENSIONS = Set.of("dvd", "dvm", "tim", "tip", "tmd");
+
+    private record RecurringValue(String field, String value) {
+    }
+
+    private record Partition(String name, Directory directory, IndexWriter writer) {
+    }
+
+    private final String indexPath;
+    private final Duration commitInterval;
+    private final Duration refreshInterval;
+    private final boolean memoryMapped;
+    private final boolean preload;
+    private final boolean partitioned;
+    // or null for indexes kept in insertion order
+    private final Sort indexSort;
+    private final int searchThreads;
+    private final ExecutorService searchExecutor;
+    private final long slowOperationNanos;
+    // the managed searchers only hold readers. Each search gets its own searcher on top.
+    private final SearcherFactory searcherFactory = new SearcherFactory();
+    @Getter
+    private final IndexMetrics metrics = new IndexMetrics();
+    private final Analyzer analyzer = new StandardAnalyzer();
     private Directory index;
-    private SearcherManager searcherManager;
+    private IndexWriter writer;
+    // partition name to its index. Only changed while holding the write lock.
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private ReferenceManager<IndexSearcher> searcherManager;
+    // searches and commits only see complete updates, so an update never shows up (or gets persisted) half-way
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final AtomicBoolean commitScheduled = new AtomicBoolean();
+    // facet field to its state for the current reader. Building one walks all the field's values in the index.
+    private final Map<String, SortedSetDocValuesReaderState> facetStates = new ConcurrentHashMap<>();
+    private volatile IndexReader currentReader;
+    private final ScheduledExecutorService scheduledExecutorService = newSingleThreadScheduledExecutor(
+        Thread.ofVirtual().name("lucene-", 0L).factory());
+    private final Cache<RecurringValue, List<IndexableField>> recurringFields = Caffeine.newBuilder()
+        .maximumSize(MAX_RECURRING_VALUES)
+        .expireAfterAccess(Duration.ofMinutes(10))
+        .scheduler(Scheduler.systemScheduler())
+        .build();
 
     Supplier<Long> maxMemorySupplier = Runtime.getRuntime()::maxMemory;
 
     public LuceneDirectory(MainConfiguration mainConfiguration) {
-        openConnection(calcIndexPath(mainConfiguration), calcCacheSize());
-        log.info("Successfully opened database at {} with {} Bytes cache",
-            calcIndexPath(mainConfiguration),
-            calcCacheSize());
+        this(mainConfiguration, null, null);
+    }
+
+    /**
+     * @param indexSort      the order documents are kept in, or null for insertion order. Searches sorted by (a prefix
+     *                       of) it stop as soon as they have enough hits.
+     * @param searchExecutor runs the slices of a search concurrently. Without one, searches run on the calling thread.
+     */
+    public LuceneDirectory(MainConfiguration mainConfiguration, Sort indexSort, ExecutorService searchExecutor) {
+        this.indexPath = calcIndexPath(mainConfiguration);
+        this.commitInterval = Duration.ofSeconds(Math.max(0, mainConfiguration.dbCommitIntervalSeconds()));
+        this.refreshInterval = Duration.ofMillis(Math.max(0, mainConfiguration.dbRefreshIntervalMillis()));
+        this.memoryMapped = mainConfiguration.isDbMemoryMapped();
+        this.preload = mainConfiguration.isDbPreloadEnabled();
+        this.partitioned = mainConfiguration.isDbPartitioned();
+        this.indexSort = indexSort;
+        this.searchThreads = Math.max(1, mainConfiguration.dbSearchThreads());
+        this.searchExecutor = searchThreads > 1 ? searchExecutor : null;
+        this.slowOperationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, mainConfiguration.dbSlowQueryMillis()));
+        openConnection(indexPath, calcCacheSize());
+        log.info("Successfully opened {} database at {} with {} Bytes cache and {} partitions",
+            memoryMapped ? "memory mapped" : "file based",
+            indexPath,
+            calcCacheSize(),
+            partitions.size());
         migrationDeleteUnversioned();
     }
 
     private void migrationDeleteUnversioned() {
         log.debug("For schema migration, deleting all documents not containing any version or doctype");
         try {
-            performUpdate(new StandardAnalyzer(), writer ->
+            performUpdate("LuceneDirectory.migrationDeleteUnversioned", writer ->
                 writer.deleteDocuments(new BooleanQuery.Builder()
                     .add(new FieldExistsQuery(DOCUMENT_FIELD_TYPE), BooleanClause.Occur.MUST_NOT)
                     .build()));
@@ -123,58 +259,831 @@ public class LuceneDirectory {
             if ("<in-mem>".equals(indexPath)) {
                 this.index = new ByteBuffersDirectory();
             } else {
-                this.index = new NIOFSDirectory(new File(indexPath).toPath());
+                this.index = openDirectory(new File(indexPath).toPath());
             }
 
             try {
+                sortIndex();
+                this.writer = new IndexWriter(this.index, newWriterConfig());
                 // need at least one entry for a reader to work on...
-                val writer = new IndexWriter(this.index, new IndexWriterConfig(new StandardAnalyzer()));
                 val document = new Document();
                 document.add(new Field("ID$$term", "placeholder", TYPE_NO_TOKENIZE));
                 writer.updateDocument(new Term("ID$$term", "placeholder"), document);
-                writer.close();
+                writer.commit();
+                openPartitions();
             } catch (IOException | IllegalArgumentException e) {
                 // index got corrupted (or it's an old version). Delete index and re-index later.
+                if (null != this.writer) {
+                    this.writer.rollback();
+                    this.writer = null;
+                }
+                for (val partition : partitions.values()) {
+                    partition.writer().rollback();
+                    partition.directory().close();
+                }
+                partitions.clear();
                 this.index.close();
-                Files.walk(new File(indexPath).toPath())
-                    .sorted(Comparator.reverseOrder())
-                    .map(Path::toFile)
-                    .forEach(File::delete);
+                deleteRecursively(new File(indexPath).toPath());
+                if (siblingFile(PARTITIONS_SUFFIX).isPresent()) {
+                    deleteRecursively(siblingFile(PARTITIONS_SUFFIX).get());
+                }
                 openConnection(indexPath, cacheSize);
                 return;
             }
 
             IndexSearcher.setDefaultQueryCache(new LRUQueryCache(1000, cacheSize));
-            this.searcherManager = new SearcherManager(this.index, null);
+            // searches read from the writer, so they see updates without waiting for a commit
+            this.searcherManager = partitioned ? new PartitionedSearcherManager() : new SearcherManager(this.writer, searcherFactory);
+            this.searcherManager.addListener(new ReferenceManager.RefreshListener() {
+                @Override
+                public void beforeRefresh() {
+                }
+
+                @Override
+                public void afterRefresh(boolean didRefresh) throws IOException {
+                    if (didRefresh) {
+                        updateCurrentReader();
+                    }
+                }
+            });
+            updateCurrentReader();
         } catch (final IOException e) {
             throw new IllegalStateException("Could not initialize FS directory on '" + indexPath + "'.", e);
         }
     }
 
-    public <T> T performSearch(SearchFunction<T> function) {
+    private void updateCurrentReader() throws IOException {
+        val searcher = searcherManager.acquire();
+        try {
+            currentReader = searcher.getIndexReader();
+            facetStates.clear();
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private Directory openDirectory(Path path) throws IOException {
+        if (!memoryMapped) {
+            return new NIOFSDirectory(path);
+        }
+        val mmapDirectory = new MMapDirectory(path);
+        if (preload) {
+            mmapDirectory.setPreload((name, context) -> PRELOADED_EXTENSIONS.contains(IndexFileNames.getExtension(name)));
+        }
+        return mmapDirectory;
+    }
+
+    /**
+     * Opens the partitions written before, each a separate index in a directory next to this one. Without
+     * partitioning, partitions left over from before are deleted.
+     */
+    private void openPartitions() throws IOException {
+        val partitionsPath = siblingFile(PARTITIONS_SUFFIX);
+        if (partitionsPath.isEmpty() || !Files.isDirectory(partitionsPath.get())) {
+            return;
+        }
+        if (!partitioned) {
+            log.info("Deleting partitions at {}, the index isn't partitioned anymore", partitionsPath.get());
+            deleteRecursively(partitionsPath.get());
+            return;
+        }
+        try (val paths = Files.list(partitionsPath.get())) {
+            for (val path : paths.toList()) {
+                openPartition(path.getFileName().toString());
+            }
+        }
+    }
+
+    private Partition openPartition(String name) throws IOException {
+        val partitionsPath = siblingFile(PARTITIONS_SUFFIX);
+        val directory = partitionsPath.isPresent() ? openDirectory(partitionsPath.get().resolve(name)) : new ByteBuffersDirectory();
+        try {
+            val partition = new Partition(name, directory, new IndexWriter(directory, newWriterConfig()));
+            partitions.put(name, partition);
+            return partition;
+        } catch (final IOException | RuntimeException e) {
+            directory.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Discards a partition's writer and files. Searches still reading it keep its files open until they're done.
+     */
+    private void removePartition(String name) throws IOException {
+        val partition = partitions.remove(name);
+        if (null == partition) {
+            return;
+        }
+        partition.writer().rollback();
+        partition.directory().close();
+        val partitionsPath = siblingFile(PARTITIONS_SUFFIX);
+        if (partitionsPath.isPresent()) {
+            deleteRecursively(partitionsPath.get().resolve(name));
+        }
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    @Override
+    public Set<String> partitions() {
+        return new TreeSet<>(partitions.keySet());
+    }
+
+    /**
+     * Removes a partition and all its documents at once, without deleting any document on its own.
+     */
+    public void dropPartition(String name) throws IOException {
+        writeLock.lock();
+        try {
+            removePartition(name);
+            refresh();
+        } finally {
+            writeLock.unlock();
+        }
+        log.debug("Dropped partition {}", name);
+    }
+
+    /**
+     * @return a version of the index (and its partitions) read by the searcher. It changes with every update
+     * searches can see.
+     */
+    public static long readerVersion(IndexSearcher searcher) {
+        return switch (searcher.getIndexReader()) {
+            case PartitionedReader reader -> reader.version;
+            case DirectoryReader reader -> reader.getVersion();
+            default -> throw new IllegalArgumentException("Not a searcher of a lucene directory: " + searcher);
+        };
+    }
+
+    /**
+     * The index and its partitions, read as one.
+     */
+    private static final class PartitionedReader extends MultiReader {
+        private final long version;
+        private final DirectoryReader main;
+        private final Map<String, DirectoryReader> partitionReaders;
+
+        private PartitionedReader(long version, DirectoryReader main, Map<String, DirectoryReader> partitionReaders) throws IOException {
+            super(Stream.concat(Stream.ofNullable(main), partitionReaders.values().stream()).toArray(IndexReader[]::new), false);
+            this.version = version;
+            this.main = main;
+            this.partitionReaders = partitionReaders;
+        }
+
+        /**
+         * @return a reader of some of the partitions only, at the same version. It must be closed after use.
+         */
+        private PartitionedReader subset(Collection<String> names) throws IOException {
+            val subset = new TreeMap<String, DirectoryReader>();
+            for (val name : names) {
+                val reader = partitionReaders.get(name);
+                if (null != reader) {
+                    subset.put(name, reader);
+                }
+            }
+            return new PartitionedReader(version, null, subset);
+        }
+    }
+
+    /**
+     * Reads the index together with all its partitions. A refresh only reopens the readers of the ones that changed.
+     * It runs while holding the write lock, so partitions aren't added or removed meanwhile.
+     */
+    private final class PartitionedSearcherManager extends ReferenceManager<IndexSearcher> {
+        private PartitionedSearcherManager() throws IOException {
+            val partitionReaders = new TreeMap<String, DirectoryReader>();
+            for (val partition : partitions.values()) {
+                partitionReaders.put(partition.name(), DirectoryReader.open(partition.writer()));
+            }
+            current = newSearcher(0, DirectoryReader.open(writer), partitionReaders);
+        }
+
+        @Override
+        protected IndexSearcher refreshIfNeeded(IndexSearcher referenceToRefresh) throws IOException {
+            val old = (PartitionedReader) referenceToRefresh.getIndexReader();
+            val main = reopen(old.main, writer);
+            var changed = main != old.main || !old.partitionReaders.keySet().equals(partitions.keySet());
+            val partitionReaders = new TreeMap<String, DirectoryReader>();
+            for (val partition : partitions.values()) {
+                val oldReader = old.partitionReaders.get(partition.name());
+                val reader = reopen(oldReader, partition.writer());
+                changed |= reader != oldReader;
+                partitionReaders.put(partition.name(), reader);
+            }
+            if (changed) {
+                return newSearcher(old.version + 1, main, partitionReaders);
+            }
+            main.decRef();
+            for (val reader : partitionReaders.values()) {
+                reader.decRef();
+            }
+            return null;
+        }
+
+        /**
+         * @return the reader's current version, or the reader itself if unchanged. Either way, it's the caller's
+         * reference.
+         */
+        private static DirectoryReader reopen(DirectoryReader old, IndexWriter writer) throws IOException {
+            if (null == old) {
+                return DirectoryReader.open(writer);
+            }
+            val reopened = DirectoryReader.openIfChanged(old, writer);
+            if (null != reopened) {
+                return reopened;
+            }
+            old.incRef();
+            return old;
+        }
+
+        /**
+         * The searcher's reader takes over the given readers' references.
+         */
+        private IndexSearcher newSearcher(long version, DirectoryReader main, Map<String, DirectoryReader> partitionReaders) throws IOException {
+            val reader = new PartitionedReader(version, main, partitionReaders);
+            main.decRef();
+            for (val partitionReader : partitionReaders.values()) {
+                partitionReader.decRef();
+            }
+            return searcherFactory.newSearcher(reader, null);
+        }
+
+        @Override
+        protected void decRef(IndexSearcher reference) throws IOException {
+            reference.getIndexReader().decRef();
+        }
+
+        @Override
+        protected boolean tryIncRef(IndexSearcher reference) {
+            return reference.getIndexReader().tryIncRef();
+        }
+
+        @Override
+        protected int getRefCount(IndexSearcher reference) {
+            return reference.getIndexReader().getRefCount();
+        }
+    }
+
+    /**
+     * What one {@link #performSearch} found and loaded, for the metrics and the slow query log.
+     */
+    private static final class SearchCall {
+        private final String callSite;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder storedDocuments = new LongAdder();
+        private final List<Query> queries = Collections.synchronizedList(new ArrayList<>());
+
+        private SearchCall(String callSite) {
+            this.callSite = callSite;
+        }
+
+        private void searched(Query query, Object result) {
+            hits.add(hitsOf(result));
+            if (queries.size() < MAX_LOGGED_QUERIES) {
+                queries.add(query);
+            }
+        }
+
+        private static long hitsOf(Object result) {
+            return switch (result) {
+                case TopDocs topDocs -> topDocs.totalHits.value();
+                case Integer count -> count;
+                // several collectors of the same hits, e.g. top docs and facets
+                case Object[] results -> Stream.of(results).mapToLong(SearchCall::hitsOf).max().orElse(0);
+                case null, default -> 0;
+            };
+        }
+    }
+
+    /**
+     * Records its searches and loaded documents in a {@link SearchCall}. With more than one search thread, the index
+     * is split into at most that many slices of similar size, searched concurrently. Partitions and small segments are
+     * grouped into slices; a segment is never split.
+     */
+    private final class RecordingSearcher extends IndexSearcher {
+        private final SearchCall call;
+
+        private RecordingSearcher(IndexReader reader, SearchCall call) {
+            super(reader, searchExecutor);
+            this.call = call;
+        }
+
+        @Override
+        protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+            if (null == searchExecutor) {
+                return super.slices(leaves);
+            }
+            val docs = leaves.stream().mapToInt(leaf -> leaf.reader().maxDoc()).sum();
+            val docsPerSlice = Math.max(MIN_DOCS_PER_SLICE, Math.ceilDiv(docs, searchThreads));
+            // slices are limited by their size only
+            return slices(leaves, docsPerSlice, Integer.MAX_VALUE, false);
+        }
+
+        @Override
+        public <C extends Collector, T> T search(Query query, CollectorManager<C, T> collectorManager) throws IOException {
+            val result = super.search(query, collectorManager);
+            call.searched(query, result);
+            return result;
+        }
+
+        @Override
+        public StoredFields storedFields() throws IOException {
+            val storedFields = super.storedFields();
+            return new StoredFields() {
+                @Override
+                public void prefetch(int docID) throws IOException {
+                    storedFields.prefetch(docID);
+                }
+
+                @Override
+                public void document(int docID, StoredFieldVisitor visitor) throws IOException {
+                    call.storedDocuments.increment();
+                    storedFields.document(docID, visitor);
+                }
+            };
+        }
+    }
+
+    private IndexWriterConfig newWriterConfig() {
+        val config = new IndexWriterConfig(analyzer).setCodec(CODEC);
+        return null == indexSort ? config : config.setIndexSort(indexSort);
+    }
+
+    /**
+     * An index written without (or with another) index sort can't be opened with it. Its documents are copied into a
+     * new, sorted index in the same directory. The old one stays in place until the new one is committed.
+     *
+     * @throws IOException if the index can't be read
+     * @throws IllegalStateException if the index was read, but couldn't be sorted. It's left in place unsorted.
+     */
+    private void sortIndex() throws IOException {
+        if (null == indexSort || !DirectoryReader.indexExists(index)) {
+            return;
+        }
+        val latestCommit = SegmentInfos.readLatestCommit(index);
+        for (val segment : latestCommit) {
+            if (!indexSort.equals(segment.info.getIndexSort())) {
+                val startedAt = System.nanoTime();
+                try (val reader = DirectoryReader.open(index)) {
+                    copySorted(reader, latestCommit.getUserData());
+                }
+                log.info("Sorted the index in {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                return;
+            }
+        }
+    }
+
+    private void copySorted(DirectoryReader reader, Map<String, String> commitData) {
+        // closing the writer without a commit keeps the old index
+        try (val sorting = new IndexWriter(index, newWriterConfig()
+            .setOpenMode(IndexWriterConfig.OpenMode.CREATE)
+            .setCommitOnClose(false))) {
+            sorting.addIndexes(reader.leaves().stream()
+                .map(leaf -> SlowCodecReaderWrapper.wrap(leaf.reader()))
+                .toArray(CodecReader[]::new));
+            sorting.setLiveCommitData(commitData.entrySet());
+            sorting.commit();
+        } catch (final IOException | RuntimeException e) {
+            // the index itself is fine. Deleting it like a broken one would lose what isn't imported again.
+            throw new IllegalStateException("Could not sort the index at '" + indexPath + "'.", e);
+        }
+    }
+
+    /**
+     * @return a file next to the index directory, for data derived from the index. Empty for in-memory indexes.
+     */
+    public Optional<Path> siblingFile(String suffix) {
+        if ("<in-mem>".equals(indexPath)) {
+            return Optional.empty();
+        }
+        val path = Path.of(indexPath);
+        return Optional.of(path.resolveSibling(path.getFileName() + suffix));
+    }
+
+    /**
+     * Searches the index. The search's duration, hits and loaded documents are recorded for the call site, named like
+     * {@code ClipRepository.findAllChannels}.
+     */
+    public <T> T performSearch(String callSite, SearchFunction<T> function) {
+        return search(callSite, null, function);
+    }
+
+    /**
+     * Like {@link #performSearch(String, SearchFunction)}, but only reads the named partitions, and none of the
+     * documents outside of partitions. Without partitioning, the whole index is searched.
+     */
+    public <T> T performSearch(String callSite, Collection<String> partitionNames, SearchFunction<T> function) {
+        return search(callSite, partitioned ? partitionNames : null, function);
+    }
+
+    private <T> T search(String callSite, Collection<String> partitionNames, SearchFunction<T> function) {
+        val startedAt = System.nanoTime();
+        val call = new SearchCall(callSite);
         try {
             val searcher = searcherManager.acquire();
             try {
-                return function.search(searcher);
+                if (null == partitionNames) {
+                    return function.search(new RecordingSearcher(searcher.getIndexReader(), call));
+                }
+                try (val subset = ((PartitionedReader) searcher.getIndexReader()).subset(partitionNames)) {
+                    return function.search(new RecordingSearcher(subset, call));
+                }
             } finally {
                 searcherManager.release(searcher);
+                recordSearch(call, System.nanoTime() - startedAt);
             }
         } catch (final IOException e) {
             throw new RuntimeException("Could not perform search.", e);
         }
     }
 
-    public void performUpdate(Analyzer analyzer, UpdateFunction function) throws IOException {
-        try (val writer = new IndexWriter(this.index, new IndexWriterConfig(analyzer))) {
+    private void recordSearch(SearchCall call, long nanos) {
+        val hits = call.hits.sum();
+        val storedDocuments = call.storedDocuments.sum();
+        metrics.record(IndexMetrics.OPERATION_SEARCH, call.callSite, nanos, hits, storedDocuments);
+        if (isSlow(nanos)) {
+            log.warn("Slow index search by {} took {}ms, found {} hits and loaded {} stored documents: {}",
+                call.callSite,
+                TimeUnit.NANOSECONDS.toMillis(nanos),
+                hits,
+                storedDocuments,
+                abbreviate(String.valueOf(call.queries)));
+        }
+    }
+
+    /**
+     * Updates the index. Searches see the update within the configured refresh interval, or after {@link #refresh()}.
+     * It's persisted within the configured commit interval, or by {@link #commit()}. The update's duration, including
+     * waiting for other updates, is recorded for the call site, named like for searches.
+     */
+    public void performUpdate(String callSite, UpdateFunction function) throws IOException {
+        val startedAt = System.nanoTime();
+        writeLock.lock();
+        try {
             function.update(writer);
+        } finally {
+            writeLock.unlock();
+            recordUpdate(callSite, System.nanoTime() - startedAt);
+        }
+        scheduleRefreshAndCommit();
+    }
+
+    @Override
+    public void performUpdate(String callSite, String partition, UpdateFunction function) throws IOException {
+        if (!partitioned) {
+            performUpdate(callSite, function);
+            return;
+        }
+        val startedAt = System.nanoTime();
+        writeLock.lock();
+        try {
+            val existing = partitions.get(partition);
+            function.update((null == existing ? openPartition(partition) : existing).writer());
+        } finally {
+            writeLock.unlock();
+            recordUpdate(callSite, System.nanoTime() - startedAt);
+        }
+        scheduleRefreshAndCommit();
+    }
+
+    private void recordUpdate(String callSite, long nanos) {
+        metrics.record(IndexMetrics.OPERATION_UPDATE, callSite, nanos, 0, 0);
+        if (isSlow(nanos)) {
+            log.warn("Slow index update by {} took {}ms", callSite, TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+    }
+
+    private boolean isSlow(long nanos) {
+        return slowOperationNanos > 0 && nanos > slowOperationNanos;
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= MAX_LOGGED_QUERY_LENGTH ? text : text.substring(0, MAX_LOGGED_QUERY_LENGTH) + "...";
+    }
+
+    private void scheduleRefreshAndCommit() throws IOException {
+        if (refreshInterval.isZero()) {
+            refresh();
+        } else if (refreshScheduled.compareAndSet(false, true)) {
+            scheduledExecutorService.schedule(this::scheduledRefresh, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (commitInterval.isZero()) {
+            commit();
+        } else if (commitScheduled.compareAndSet(false, true)) {
+            scheduledExecutorService.schedule(this::scheduledCommit, commitInterval.toSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Makes all updates performed until now visible to searches.
+     */
+    public void refresh() throws IOException {
+        writeLock.lock();
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Persists all updates performed until now. Partitions are committed before the index, so the index's commit data
+     * never describes documents that aren't persisted yet.
+     */
+    public void commit() throws IOException {
+        writeLock.lock();
+        try {
+            val startedAt = System.nanoTime();
+            var committed = 0;
+            for (val partition : partitions.values()) {
+                if (partition.writer().hasUncommittedChanges()) {
+                    partition.writer().commit();
+                    committed++;
+                }
+            }
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+                committed++;
+            }
+            if (committed > 0) {
+                log.debug("Committed {} indexes in {}ms", committed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Persists all updates, and releases the index, so it can be opened again. Updates and searches fail afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduledExecutorService.shutdownNow();
+        writeLock.lock();
+        try {
+            searcherManager.close();
+            // closing a writer commits it, partitions first like in commit()
+            for (val partition : partitions.values()) {
+                partition.writer().close();
+                partition.directory().close();
+            }
+            writer.close();
+            index.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the values saved with the index, including ones not committed yet
+     */
+    public Map<String, String> commitData() {
+        val data = new HashMap<String, String>();
+        val live = writer.getLiveCommitData();
+        if (null != live) {
+            live.forEach(e -> data.put(e.getKey(), e.getValue()));
+        }
+        return data;
+    }
+
+    /**
+     * Changes the values saved with the index. They're persisted with the next commit.
+     */
+    public void updateCommitData(Consumer<Map<String, String>> update) {
+        writeLock.lock();
+        try {
+            val data = commitData();
+            update.accept(data);
+            writer.setLiveCommitData(data.entrySet());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void scheduledRefresh() {
+        refreshScheduled.set(false);
+        try {
+            refresh();
+        } catch (final IOException | RuntimeException e) {
+            log.warn("Could not refresh index searcher", e);
+        }
+    }
+
+    private void scheduledCommit() {
+        commitScheduled.set(false);
+        try {
+            commit();
+        } catch (final IOException | RuntimeException e) {
+            log.warn("Could not commit index", e);
+        }
+    }
+
+    /**
+     * Starts building a replacement for a part of the index. It's written to a separate index next to this one, so
+     * searches aren't affected until the replacement is complete. With partitioning, it replaces all partitions.
+     */
+    public Rebuild startRebuild() throws IOException {
+        val stagingPath = siblingFile(REBUILD_SUFFIX);
+        val stagedPartitionsPath = siblingFile(REBUILD_SUFFIX + PARTITIONS_SUFFIX);
+        if (stagedPartitionsPath.isPresent()) {
+            deleteRecursively(stagedPartitionsPath.get());
+        }
+        Directory staging;
+        if (stagingPath.isPresent()) {
+            // left over from a rebuild that didn't finish
+            deleteRecursively(stagingPath.get());
+            staging = new NIOFSDirectory(stagingPath.get());
+        } else {
+            staging = new ByteBuffersDirectory();
+        }
+        try {
+            return new Rebuild(
+                staging,
+                stagingPath,
+                stagedPartitionsPath,
+                new IndexWriter(staging, newWriterConfig().setOpenMode(IndexWriterConfig.OpenMode.CREATE)));
+        } catch (final IOException | RuntimeException e) {
+            staging.close();
+            throw e;
         }
-        searcherManager.maybeRefreshBlocking();
+    }
+
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public class Rebuild implements Closeable, PartitionedIndex {
+        private final Directory staging;
+        private final Optional<Path> stagingPath;
+        private final Optional<Path> stagedPartitionsPath;
+        private final IndexWriter stagingWriter;
+        // partition name to its replacement
+        private final Map<String, Partition> stagedPartitions = new TreeMap<>();
+        private boolean closed;
+
+        /**
+         * Writes to the replacement. Nothing gets deleted from it, so documents can be added without any lookup.
+         */
+        public void performUpdate(UpdateFunction function) throws IOException {
+            function.update(stagingWriter);
+        }
+
+        /**
+         * Writes to the replacement of a partition. Without partitioning, it writes to the replacement of the index. Writes
+         * to a replacement aren't recorded in the metrics.
+         */
+        @Override
+        public void performUpdate(String callSite, String partition, UpdateFunction function) throws IOException {
+            if (!partitioned) {
+                performUpdate(function);
+                return;
+            }
+            var staged = stagedPartitions.get(partition);
+            if (null == staged) {
+                val directory = stagedPartitionsPath.isPresent() ?
+                    new NIOFSDirectory(stagedPartitionsPath.get().resolve(partition)) :
+                    new ByteBuffersDirectory();
+                try {
+                    staged = new Partition(partition, directory,
+                        new IndexWriter(directory, newWriterConfig().setOpenMode(IndexWriterConfig.OpenMode.CREATE)));
+                } catch (final IOException | RuntimeException e) {
+                    directory.close();
+                    throw e;
+                }
+                stagedPartitions.put(partition, staged);
+            }
+            function.update(staged.writer());
+        }
+
+        @Override
+        public Set<String> partitions() {
+            return Set.copyOf(stagedPartitions.keySet());
+        }
+
+        /**
+         * Replaces all documents matching the query with the rebuilt ones. Searches switch from the old to the new
+         * documents at once; the old ones' files are removed as soon as no search uses them anymore. Partitions are
+         * replaced as a whole: rebuilt ones replace their current version, and the ones not rebuilt are dropped.
+         */
+        public void replace(Query replaced) throws IOException {
+            try {
+                val startedAt = System.nanoTime();
+                stagingWriter.forceMerge(1);
+                stagingWriter.close();
+                for (val staged : stagedPartitions.values()) {
+                    staged.writer().forceMerge(1);
+                    staged.writer().close();
+                }
+                writeLock.lock();
+                try {
+                    writer.deleteDocuments(replaced);
+                    writer.addIndexes(staging);
+                    for (val name : LuceneDirectory.this.partitions()) {
+                        if (!stagedPartitions.containsKey(name)) {
+                            removePartition(name);
+                        }
+                    }
+                    for (val staged : stagedPartitions.values()) {
+                        val existing = partitions.get(staged.name());
+                        val partition = null == existing ? openPartition(staged.name()) : existing;
+                        partition.writer().deleteAll();
+                        partition.writer().addIndexes(staged.directory());
+                    }
+                    refresh();
+                    commit();
+                } finally {
+                    writeLock.unlock();
+                }
+                log.info("Replaced documents by the rebuilt ones in {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Discards the replacement, unless it already replaced the documents.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (stagingWriter.isOpen()) {
+                    stagingWriter.rollback();
+                }
+                staging.close();
+                for (val staged : stagedPartitions.values()) {
+                    if (staged.writer().isOpen()) {
+                        staged.writer().rollback();
+                    }
+                    staged.directory().close();
+                }
+            } finally {
+                if (stagingPath.isPresent()) {
+                    deleteRecursively(stagingPath.get());
+                }
+                if (stagedPartitionsPath.isPresent()) {
+                    deleteRecursively(stagedPartitionsPath.get());
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (val files = Files.walk(path)) {
+            files
+                .sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    /**
+     * @return the state needed to count the field's facets, built once per index reader
+     */
+    public SortedSetDocValuesReaderState facetState(IndexSearcher searcher, RepoTypeFields field) throws IOException {
+        val reader = searcher.getIndexReader();
+        val cached = facetStates.get(field.facet());
+        if (null != cached && cached.getReader() == reader) {
+            return cached;
+        }
+        val state = new DefaultSortedSetDocValuesReaderState(reader, field.facet(), new FacetsConfig());
+        // a search still using an older reader gets a state of its own, but mustn't replace the current one
+        if (reader == currentReader) {
+            facetStates.put(field.facet(), state);
+        }
+        return state;
     }
 
     public Query createDoctypeQuery(String docType) {
         return new TermQuery(new Term(DOCUMENT_FIELD_TYPE, docType));
     }
 
+    /**
+     * @return all documents of the type written with a schema version before the given one
+     */
+    public Query createOutdatedQuery(String docType, long schemaVersion) {
+        return new BooleanQuery.Builder()
+            .add(createDoctypeQuery(docType), BooleanClause.Occur.MUST)
+            .add(LongField.newRangeQuery(DOCUMENT_FIELD_VERSION_SORTED, Long.MIN_VALUE, schemaVersion - 1), BooleanClause.Occur.MUST)
+            .build();
+    }
+
+    /**
+     * Matches a time field's values between both bounds, in epoch seconds, inclusive. Narrow ranges are looked up in
+     * the field's points, and ranges matching most documents are checked against its doc values.
+     */
+    public Query createTimeRangeQuery(RepoTypeFields field, long fromEpochSecond, long toEpochSecond) {
+        return new IndexOrDocValuesQuery(
+            LongPoint.newRangeQuery(field.point(), fromEpochSecond, toEpochSecond),
+            NumericDocValuesField.newSlowRangeQuery(field.sorted(), fromEpochSecond, toEpochSecond));
+    }
+
     public DocumentBuilder buildDocument(String docType, long schemaVersion) {
         val doc = new Document();
         doc.add(new Field(DOCUMENT_FIELD_TYPE, new BytesRef(docType), TYPE_DOCVALUES_TEXT));
@@ -183,29 +1092,57 @@ public class LuceneDirectory {
         return new DocumentBuilder(doc);
     }
 
+    private static List<IndexableField> createFields(RepoTypeFields field, String source) {
+        val fields = new ArrayList<IndexableField>(5);
+        // values are only ever looked up as a whole, so they are never analyzed
+        if (field.isStored()) {
+            fields.add(new StoredField(field.stored(), field.value(source)));
+        }
+
+        if (field.isSort()) {
+            fields.add(new SortedDocValuesField(field.sorted(), new BytesRef(field.sorted(source))));
+        }
+
+        if (field.isTerm()) {
+            fields.add(new Field(field.term(), field.term(source), TYPE_NO_TOKENIZE));
+        }
+        if (field.isLowerTerm()) {
+            fields.add(new Field(field.termLower(), field.termLower(source), TYPE_NO_TOKENIZE));
+        }
+        if (field.isFacet() && !source.isBlank()) {
+            fields.add(new SortedSetDocValuesFacetField(field.facet(), field.facet(source)));
+        }
+        return fields;
+    }
+
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     public class DocumentBuilder {
         private final Document document;
 
         public DocumentBuilder addField(RepoTypeFields field, String source) {
-            document.add(new TextField(field.value(), field.value(source), Field.Store.YES));
+            createFields(field, source).forEach(document::add);
+            return this;
+        }
 
-            if (field.isSort()) {
-                document.add(new SortedDocValuesField(field.sorted(), new BytesRef(field.sorted(source))));
+        /**
+         * Like {@link #addField(RepoTypeFields, String)}, for values that repeat across many documents (e.g. channel
+         * names). The index fields for such a value are created once and shared by all documents containing it.
+         */
+        public DocumentBuilder addRecurringField(RepoTypeFields field, String source) {
+            recurringFields
+                .get(new RecurringValue(field.value(), source), v -> createFields(field, source))
+                .forEach(document::add);
+            return this;
+        }
+
+        public DocumentBuilder addField(RepoTypeFields field, long source) {
+            if (field.isStored()) {
+                document.add(new StoredField(field.stored(), source));
             }
 
             if (field.isTerm()) {
                 document.add(new Field(field.term(), field.term(source), TYPE_NO_TOKENIZE));
-                document.add(new Field(field.termLower(), field.termLower(source), TYPE_NO_TOKENIZE));
-                if (!source.isBlank()) {
-                    document.add(new SortedSetDocValuesFacetField(field.facet(), field.facet(source)));
-                }
             }
-            return this;
-        }
-
-        public DocumentBuilder addField(RepoTypeFields field, long source) {
-            document.add(new StoredField(field.value(), source));
 
             if (field.isSort()) {
                 document.add(new NumericDocValuesField(field.sorted(), source));
@@ -214,14 +1151,25 @@ public class LuceneDirectory {
         }
 
         public DocumentBuilder addField(RepoTypeFields field, ZonedDateTime source) {
-            document.add(new StoredField(field.value(), source.toString()));
+            if (field.isStored()) {
+                document.add(new StoredField(field.stored(), source.toString()));
+            }
 
             if (field.isSort()) {
                 document.add(new NumericDocValuesField(field.sorted(), source.toEpochSecond()));
+                document.add(new LongPoint(field.point(), source.toEpochSecond()));
             }
             return this;
         }
 
+        /**
+         * Stores binary data, e.g. all of a document's values encoded in one field. It is not indexed in any way.
+         */
+        public DocumentBuilder addField(RepoTypeFields field, BytesRef source) {
+            document.add(new StoredField(field.stored(), source));
+            return this;
+        }
+
         @SneakyThrows
         private Document applyFacets(Document d) {
             val facetsConfig = new FacetsConfig();
@@ -0,0 +1,46 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.service.base.lucene;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * An index whose documents may be kept in partitions, e.g. one per week. Partitions are written, replaced and dropped
+ * on their own, but searched together.
+ */
+public interface PartitionedIndex {
+    /**
+     * Updates one partition, which is created by its first update. Without partitioning, the whole index is updated.
+     *
+     * @param callSite names the update in the index's metrics, like {@code ClipRepository.addClips}
+     */
+    void performUpdate(String callSite, String partition, LuceneDirectory.UpdateFunction function) throws IOException;
+
+    /**
+     * @return the names of all partitions, empty without partitioning
+     */
+    Set<String> partitions();
+}
@@ -24,6 +24,9 @@
 
 package de.corelogics.mediaview.service.base.lucene;
 
+import org.apache.lucene.util.BitUtil;
+import org.apache.lucene.util.BytesRef;
+
 import java.util.Locale;
 
 public interface RepoTypeFields {
@@ -33,6 +36,27 @@ public interface RepoTypeFields {
 
     boolean isSort();
 
+    /**
+     * @return whether the value can be looked up case-insensitively. By default, term fields can.
+     */
+    default boolean isLowerTerm() {
+        return isTerm();
+    }
+
+    /**
+     * @return whether values are counted in facets. By default, term fields are.
+     */
+    default boolean isFacet() {
+        return isTerm();
+    }
+
+    /**
+     * @return whether the value can be read from found documents
+     */
+    default boolean isStored() {
+        return true;
+    }
+
     default String value() {
         return this.name().toLowerCase(Locale.US);
     }
@@ -41,6 +65,14 @@ public interface RepoTypeFields {
         return val;
     }
 
+    /**
+     * @return the name the value is stored under. Older indexes have the value as analyzed text under
+     * {@link #value()}, and an index doesn't allow a field to change how it's indexed.
+     */
+    default String stored() {
+        return this.value() + "$$stored";
+    }
+
     default String sorted() {
         return this.value() + "$$sorted";
     }
@@ -49,6 +81,10 @@ public interface RepoTypeFields {
         return val.toLowerCase(Locale.GERMANY);
     }
 
+    default String point() {
+        return this.value() + "$$point";
+    }
+
     default String term() {
         return this.value() + "$$term";
     }
@@ -57,6 +93,15 @@ public interface RepoTypeFields {
         return val;
     }
 
+    /**
+     * @return the number's 8 bytes, as one term
+     */
+    default BytesRef term(long val) {
+        final byte[] bytes = new byte[Long.BYTES];
+        BitUtil.VH_BE_LONG.set(bytes, 0, val);
+        return new BytesRef(bytes);
+    }
+
     default String termLower() {
         return this.value() + "$$lowerterm";
     }
@@ -45,12 +45,17 @@ public class BaseThreading {
     @Getter
     private final ExecutorService upnpIoExecutor;
 
+    // runs the slices of a single index search concurrently
+    @Getter
+    private final ExecutorService searchExecutor;
+
     public BaseThreading() {
         this(
             Thread.ofVirtual().factory(),
             Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "scheduler-main")),
             Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("webio-", 0L).factory()),
-            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upnp-", 0L).factory())
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upnp-", 0L).factory()),
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("search-", 0L).factory())
         );
     }
 
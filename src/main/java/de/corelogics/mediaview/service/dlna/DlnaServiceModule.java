@@ -61,8 +61,9 @@ public class DlnaServiceModule {
         val showContent = new ShowContent(clipContent, repositoryModule.getClipRepository());
         val sendungAzContent = new SendungAzContent(repositoryModule.getClipRepository(), showContent);
         val missedShowsContent = new MissedShowsContent(clipContent, repositoryModule.getClipRepository());
+        val newestShowsContent = new NewestShowsContent(clipContent, repositoryModule.getClipRepository());
         val mostViewedContent = new MostViewedContent(repositoryModule.getTrackedViewRepository(), repositoryModule.getClipRepository(), showContent);
-        val rootContent = new RootContent(mainConfiguration, sendungAzContent, showContent, missedShowsContent, mostViewedContent);
-        return Set.of(clipContent, missedShowsContent, sendungAzContent, rootContent, showContent, mostViewedContent);
+        val rootContent = new RootContent(mainConfiguration, sendungAzContent, showContent, missedShowsContent, newestShowsContent, mostViewedContent);
+        return Set.of(clipContent, missedShowsContent, newestShowsContent, sendungAzContent, rootContent, showContent, mostViewedContent);
     }
 }
@@ -36,16 +36,28 @@ import java.util.stream.Collectors;
 abstract class BaseDlnaRequestHandler implements DlnaRequestHandler {
     public BrowseResult respond(DlnaRequest request) {
         try {
-            val didl = respondWithException(request);
-            val totalNumResults = didl.getCount();
-            didl.setContainers(
-                didl.getContainers().stream().skip(request.firstResult()).limit(request.maxResults()).collect(Collectors.toList()));
-            didl.setItems(didl.getItems().stream().skip(request.firstResult()).limit(request.maxResults()).collect(Collectors.toList()));
-            return new BrowseResult(new DIDLParser().generate(didl), didl.getCount(), totalNumResults);
+            val page = respondWithPage(request);
+            return new BrowseResult(new DIDLParser().generate(page.didl()), page.didl().getCount(), page.totalNumResults());
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Creates the window of the content requested. By default, the whole content is created, and the window cut from it.
+     * Handlers for long lists create only the window instead.
+     */
+    protected DlnaPage respondWithPage(DlnaRequest request) {
+        val didl = respondWithException(request);
+        val totalNumResults = didl.getCount();
+        didl.setContainers(
+            didl.getContainers().stream().skip(request.firstResult()).limit(request.maxResults()).collect(Collectors.toList()));
+        didl.setItems(didl.getItems().stream().skip(request.firstResult()).limit(request.maxResults()).collect(Collectors.toList()));
+        return new DlnaPage(didl, totalNumResults);
+    }
+
     protected abstract DIDLContent respondWithException(DlnaRequest request);
+
+    protected record DlnaPage(DIDLContent didl, long totalNumResults) {
+    }
 }
@@ -76,7 +76,7 @@ public class MostViewedContent extends BaseDlnaRequestHandler {
                 request,
                 tci.channelName(),
                 tci.containedIn(),
-                clipRepository.findAllClips(tci.channelName(), tci.containedIn()).size()))
+                clipRepository.countClips(tci.channelName(), tci.containedIn())))
             .forEach(didl::addContainer);
         return didl;
     }
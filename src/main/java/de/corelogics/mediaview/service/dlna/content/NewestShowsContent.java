@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.service.dlna.content;
+
+import de.corelogics.mediaview.service.dlna.DlnaRequest;
+import de.corelogics.mediaview.service.repository.clip.ClipRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lombok.val;
+import org.jupnp.support.model.DIDLContent;
+import org.jupnp.support.model.container.StorageFolder;
+
+@AllArgsConstructor
+@Log4j2
+public class NewestShowsContent extends BaseDlnaRequestHandler {
+    private static final String URN_NEWEST = "urn:corelogics.de:mediaview:newest";
+
+    private static final int NUM_NEWEST_CLIPS = 100;
+
+    private final ClipContent clipContent;
+
+    private final ClipRepository clipRepository;
+
+    public StorageFolder createLink(DlnaRequest request) {
+        log.debug("Creating link to Newest Shows");
+        return new StorageFolder(
+            URN_NEWEST,
+            request.objectId(), "Neueste Sendungen",
+            "",
+            NUM_NEWEST_CLIPS,
+            null);
+    }
+
+    @Override
+    public boolean canHandle(DlnaRequest request) {
+        return URN_NEWEST.equals(request.objectId());
+    }
+
+    @Override
+    protected DIDLContent respondWithException(DlnaRequest request) {
+        log.debug("Creating newest shows");
+        val didl = new DIDLContent();
+        clipRepository.findNewestClips(NUM_NEWEST_CLIPS).stream()
+            .map(e -> clipContent.createLinkWithDatePrefix(request, e))
+            .forEach(didl::addItem);
+        return didl;
+    }
+}
@@ -38,6 +38,7 @@ public class RootContent extends BaseDlnaRequestHandler {
     private final SendungAzContent sendungAzContent;
     private final ShowContent showContent;
     private final MissedShowsContent missedShowsContent;
+    private final NewestShowsContent newestShowsContent;
     private final MostViewedContent mostViewedContent;
 
     @Override
@@ -52,6 +53,7 @@ public class RootContent extends BaseDlnaRequestHandler {
         addFavorites(request, didl);
         didl.addContainer(sendungAzContent.createLink(request));
         didl.addContainer(missedShowsContent.createLink(request));
+        didl.addContainer(newestShowsContent.createLink(request));
         if (mainConfiguration.isViewTrackingEnabled()) {
             didl.addContainer(mostViewedContent.createLink(request));
         }
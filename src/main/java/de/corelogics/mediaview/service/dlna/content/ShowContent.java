@@ -26,13 +26,18 @@ package de.corelogics.mediaview.service.dlna.content;
 
 import de.corelogics.mediaview.service.dlna.DlnaRequest;
 import de.corelogics.mediaview.service.repository.clip.ClipRepository;
+import de.corelogics.mediaview.service.repository.clip.ClipSortOrder;
 import de.corelogics.mediaview.util.IdUtils;
 import lombok.AllArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
 import org.jupnp.support.model.DIDLContent;
+import org.jupnp.support.model.SortCriterion;
 import org.jupnp.support.model.container.StorageFolder;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @AllArgsConstructor
 @Log4j2
 public class ShowContent extends BaseDlnaRequestHandler {
@@ -50,7 +55,7 @@ public class ShowContent extends BaseDlnaRequestHandler {
     public StorageFolder createAsLink(DlnaRequest request, String channelId, String containedIn) {
         log.debug("Creating Show link for channel {} and show {}", channelId, containedIn);
         return this.createAsLink(request, channelId, containedIn,
-            clipRepository.findAllClips(channelId, containedIn).size());
+            clipRepository.countClips(channelId, containedIn));
     }
 
     public StorageFolder createAsLink(DlnaRequest request, String channelId, String containedIn, int numberOfElements) {
@@ -70,17 +75,52 @@ public class ShowContent extends BaseDlnaRequestHandler {
 
     @Override
     protected DIDLContent respondWithException(DlnaRequest request) {
+        return createPage(request, 0, Integer.MAX_VALUE).didl();
+    }
+
+    @Override
+    protected DlnaPage respondWithPage(DlnaRequest request) {
+        return createPage(request, (int) Math.min(Integer.MAX_VALUE, request.firstResult()), windowSize(request));
+    }
+
+    private DlnaPage createPage(DlnaRequest request, int offset, int limit) {
         val didl = new DIDLContent();
+        var totalClips = 0L;
         if (request.objectId().startsWith(URN_PREFIX_SHOW)) {
             val split = request.objectId().split(":");
             val channelId = IdUtils.decodeId(split[split.length - 2]);
             val containedIn = IdUtils.decodeId(split[split.length - 1]);
             log.debug("Creating content for channel {} and show {}", channelId, containedIn);
-            clipRepository.findAllClips(channelId, containedIn).stream()
+            val page = clipRepository.findClips(channelId, containedIn, toClipSortOrder(request.orderBy()), offset, limit);
+            page.clips().stream()
                 .map(e -> clipContent.createLinkWithDatePrefix(request, e))
                 .forEach(didl::addItem);
+            totalClips = page.totalClips();
+        }
+        return new DlnaPage(didl, totalClips);
+    }
+
+    /**
+     * @return the number of clips requested. As the ContentDirectory service defines it, requesting 0 clips means
+     * requesting all of them.
+     */
+    private static int windowSize(DlnaRequest request) {
+        return request.maxResults() <= 0 ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE, request.maxResults());
+    }
+
+    /**
+     * Clients may sort by title or date. Other properties aren't known to clips, and are skipped.
+     */
+    private static List<ClipSortOrder> toClipSortOrder(List<SortCriterion> orderBy) {
+        val order = new ArrayList<ClipSortOrder>(orderBy.size());
+        for (val criterion : orderBy) {
+            switch (String.valueOf(criterion.getPropertyName())) {
+                case "dc:title" -> order.add(new ClipSortOrder(ClipSortOrder.Property.TITLE, criterion.isAscending()));
+                case "dc:date" -> order.add(new ClipSortOrder(ClipSortOrder.Property.BROADCASTED_AT, criterion.isAscending()));
+                default -> log.debug("Ignoring unknown sort criterion {}", criterion);
+            }
         }
-        return didl;
+        return order;
     }
 
     private String idShow(String channelId, String containedIn) {
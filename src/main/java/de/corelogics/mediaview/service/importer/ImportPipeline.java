@@ -0,0 +1,323 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.service.importer;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs an import in three stages, joined by bounded queues:
+ * <ul>
+ *     <li>tokenize: reads the source on the calling thread, and cuts it into batches</li>
+ *     <li>map: converts batches on several threads concurrently. Batches may leave this stage in any order.</li>
+ *     <li>index: hands mapped batches to the index in source order, on a single thread</li>
+ * </ul>
+ * A full queue blocks the stage in front of it, so a slow index slows down reading instead of piling up batches.
+ * Source order matters for entries listed more than once: the last one has to win, however many mapper threads there
+ * are. Batches mapped ahead of an earlier one wait for it, and reading pauses while too many of them wait.
+ */
+@Log4j2
+class ImportPipeline<T, P> {
+    private static final Object END_OF_INPUT = new Object();
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    // read but not yet indexed: room for both queues and all mappers, plus batches waiting for an earlier one
+    private static final int BATCHES_IN_FLIGHT_PER_MAPPER = 8;
+    private static final ThreadFactory THREAD_FACTORY = Thread.ofVirtual().name("import-", 0L).factory();
+
+    private final int batchSize;
+    private final int mapperThreads;
+    private final Function<List<T>, P> mapper;
+    private final Consumer<P> indexer;
+    private final BooleanSupplier stopped;
+
+    private final BlockingQueue<Object> tokenizedBatches;
+    private final BlockingQueue<Object> mappedBatches;
+    private final Semaphore batchesInFlight;
+    private final AtomicInteger runningMappers = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    @Getter
+    private final List<StageStatistics> stageStatistics;
+    private final StageStatistics tokenizeStatistics;
+    private final StageStatistics mapStatistics;
+    private final StageStatistics indexStatistics;
+
+    ImportPipeline(int batchSize, int mapperThreads, Function<List<T>, P> mapper, Consumer<P> indexer, BooleanSupplier stopped) {
+        this.batchSize = batchSize;
+        this.mapperThreads = mapperThreads;
+        this.mapper = mapper;
+        this.indexer = indexer;
+        this.stopped = stopped;
+        this.tokenizedBatches = new ArrayBlockingQueue<>(2 * mapperThreads);
+        this.mappedBatches = new ArrayBlockingQueue<>(2 * mapperThreads);
+        this.batchesInFlight = new Semaphore(BATCHES_IN_FLIGHT_PER_MAPPER * mapperThreads);
+        this.tokenizeStatistics = new StageStatistics("tokenize", 1);
+        this.mapStatistics = new StageStatistics("map", mapperThreads);
+        this.indexStatistics = new StageStatistics("index", 1);
+        this.stageStatistics = List.of(tokenizeStatistics, mapStatistics, indexStatistics);
+    }
+
+    /**
+     * @return false, if the import was stopped before the source was completely processed
+     * @throws RuntimeException the first exception thrown by any of the stages
+     */
+    boolean run(Iterator<T> source) {
+        val startedAt = System.nanoTime();
+        runningMappers.set(mapperThreads);
+        val threads = new ArrayList<Thread>(mapperThreads + 1);
+        for (int i = 0; i < mapperThreads; i++) {
+            threads.add(THREAD_FACTORY.newThread(this::runMapper));
+        }
+        threads.add(THREAD_FACTORY.newThread(this::runIndexer));
+        threads.forEach(Thread::start);
+        try {
+            tokenize(source);
+        } catch (final RuntimeException e) {
+            fail(e);
+        } finally {
+            for (int i = 0; i < mapperThreads; i++) {
+                offer(tokenizedBatches, END_OF_INPUT);
+            }
+            joinAll(threads);
+            val wallNanos = System.nanoTime() - startedAt;
+            stageStatistics.forEach(s -> log.info("Import stage {}", s.format(wallNanos)));
+        }
+        val thrown = failure.get();
+        if (thrown instanceof RuntimeException e) {
+            throw e;
+        } else if (null != thrown) {
+            throw new IllegalStateException("Import failed", thrown);
+        }
+        return !stopped.getAsBoolean();
+    }
+
+    private void tokenize(Iterator<T> source) {
+        var sequence = 0L;
+        var batch = new ArrayList<T>(batchSize);
+        while (!isAborted()) {
+            val started = System.nanoTime();
+            val hasNext = source.hasNext();
+            val next = hasNext ? source.next() : null;
+            tokenizeStatistics.add(hasNext ? 1 : 0, System.nanoTime() - started);
+            if (!hasNext) {
+                break;
+            }
+            batch.add(next);
+            if (tokenizeStatistics.getItems() % 10000 == 0) {
+                log.info("Import read {} entries until now. Queued for mapping: {} batches, for indexing: {} batches",
+                    tokenizeStatistics::getItems,
+                    tokenizedBatches::size,
+                    mappedBatches::size);
+            }
+            if (batch.size() >= batchSize) {
+                if (!acquire(batchesInFlight) || !offer(tokenizedBatches, new TokenizedBatch<>(sequence++, batch))) {
+                    return;
+                }
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty() && !isAborted() && acquire(batchesInFlight)) {
+            offer(tokenizedBatches, new TokenizedBatch<>(sequence, batch));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runMapper() {
+        try {
+            for (var next = poll(tokenizedBatches); null != next && next != END_OF_INPUT; next = poll(tokenizedBatches)) {
+                val batch = (TokenizedBatch<T>) next;
+                val started = System.nanoTime();
+                val mapped = mapper.apply(batch.items());
+                mapStatistics.add(batch.items().size(), System.nanoTime() - started);
+                if (!offer(mappedBatches, new MappedBatch<>(batch.sequence(), mapped, batch.items().size()))) {
+                    return;
+                }
+            }
+        } catch (final RuntimeException e) {
+            fail(e);
+        } finally {
+            if (runningMappers.decrementAndGet() == 0) {
+                offer(mappedBatches, END_OF_INPUT);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runIndexer() {
+        val waiting = new HashMap<Long, MappedBatch<P>>();
+        var nextSequence = 0L;
+        try {
+            for (var next = poll(mappedBatches); null != next && next != END_OF_INPUT; next = poll(mappedBatches)) {
+                val mapped = (MappedBatch<P>) next;
+                waiting.put(mapped.sequence(), mapped);
+                for (var batch = waiting.remove(nextSequence); null != batch; batch = waiting.remove(nextSequence)) {
+                    val started = System.nanoTime();
+                    indexer.accept(batch.payload());
+                    indexStatistics.add(batch.size(), System.nanoTime() - started);
+                    batchesInFlight.release();
+                    nextSequence++;
+                }
+            }
+        } catch (final RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private boolean isAborted() {
+        return null != failure.get() || stopped.getAsBoolean();
+    }
+
+    private void fail(Throwable t) {
+        if (!failure.compareAndSet(null, t)) {
+            log.debug("Additional exception during import", t);
+        }
+    }
+
+    /**
+     * @return false, if the pipeline was aborted while waiting for a permit
+     */
+    private boolean acquire(Semaphore semaphore) {
+        try {
+            while (!semaphore.tryAcquire(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (isAborted()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+            return false;
+        }
+    }
+
+    /**
+     * @return false, if the pipeline was aborted while waiting for space in the queue
+     */
+    private boolean offer(BlockingQueue<Object> queue, Object item) {
+        try {
+            while (!queue.offer(item, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (isAborted()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+            return false;
+        }
+    }
+
+    /**
+     * @return null, if the pipeline was aborted while waiting for an item
+     */
+    private Object poll(BlockingQueue<Object> queue) {
+        try {
+            while (!isAborted()) {
+                val next = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (null != next) {
+                    return next;
+                }
+            }
+            return null;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+            return null;
+        }
+    }
+
+    private void joinAll(List<Thread> threads) {
+        for (val thread : threads) {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+                return;
+            }
+        }
+    }
+
+    private record TokenizedBatch<T>(long sequence, List<T> items) {
+    }
+
+    private record MappedBatch<P>(long sequence, P payload, int size) {
+    }
+
+    @RequiredArgsConstructor
+    static class StageStatistics {
+        @Getter
+        private final String name;
+        private final int threads;
+        private final LongAdder items = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        void add(int numItems, long nanos) {
+            items.add(numItems);
+            busyNanos.add(nanos);
+        }
+
+        long getItems() {
+            return items.sum();
+        }
+
+        long getBusyNanos() {
+            return busyNanos.sum();
+        }
+
+        String format(long wallNanos) {
+            val wallMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(wallNanos));
+            val busyMillis = TimeUnit.NANOSECONDS.toMillis(getBusyNanos());
+            return "%s: %d entries in %dms (%d entries/s), busy %dms on %d thread(s), %d%% utilized".formatted(
+                name,
+                getItems(),
+                wallMillis,
+                getItems() * 1000 / wallMillis,
+                busyMillis,
+                threads,
+                busyMillis * 100 / (wallMillis * threads));
+        }
+    }
+}
@@ -24,13 +24,19 @@
 
 package de.corelogics.mediaview.service.importer;
 
+import de.corelogics.mediaview.client.mediatheklist.ListDownload;
 import de.corelogics.mediaview.client.mediatheklist.MediathekListClient;
+import de.corelogics.mediaview.client.mediatheklist.model.ListVersion;
 import de.corelogics.mediaview.client.mediathekview.ClipEntry;
+import de.corelogics.mediaview.client.mediathekview.ClipRow;
+import de.corelogics.mediaview.client.mediathekview.FilmlisteMetaData;
+import de.corelogics.mediaview.client.mediathekview.MediathekListe;
 import de.corelogics.mediaview.client.mediathekview.MediathekViewImporter;
 import de.corelogics.mediaview.config.MainConfiguration;
 import de.corelogics.mediaview.service.base.lifecycle.ShutdownRegistry;
 import de.corelogics.mediaview.service.base.threading.BaseThreading;
 import de.corelogics.mediaview.service.repository.clip.ClipRepository;
+import de.corelogics.mediaview.util.StringTable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
@@ -41,14 +47,20 @@ import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 
 @Log4j2
 @RequiredArgsConstructor
 public class ImporterService {
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_CANONICAL_NAMES = 65_536;
+
     private final MainConfiguration mainConfiguration;
     private final BaseThreading baseThreading;
     private final ShutdownRegistry shutdownRegistry;
@@ -59,10 +71,17 @@ public class ImporterService {
     Supplier<ZonedDateTime> currentTimeProvider = ZonedDateTime::now;
 
     private final AtomicBoolean stopped = new AtomicBoolean(false);
+    // full and incremental imports must not interleave, or a full import could delete clips a diff just updated
+    private final ReentrantLock importLock = new ReentrantLock();
 
     public void scheduleImport() {
         log.info("Starting import scheduler. Update interval: {} hours", mainConfiguration::updateIntervalFullHours);
         scheduleNextFullImport();
+        val diffInterval = mainConfiguration.updateIntervalDiffMinutes();
+        if (diffInterval > 0) {
+            log.info("Scheduling incremental imports every {} minutes", diffInterval);
+            baseThreading.schedulePeriodic(this::diffImport, Duration.ofMinutes(diffInterval), Duration.ofMinutes(diffInterval));
+        }
         this.shutdownRegistry.registerShutdown(this::shutdown);
     }
 
@@ -84,46 +103,144 @@ public class ImporterService {
     }
 
     void fullImport() {
+        importLock.lock();
+        try {
+            performFullImport();
+        } finally {
+            importLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the diff list on top of the last full import. Clips from the diff list are recorded with their fingerprints,
+     * so the next full import keeps them if the full list has them unchanged, and removes them if it doesn't have them.
+     */
+    void diffImport() {
+        if (stopped.get()) {
+            return;
+        }
+        if (!importLock.tryLock()) {
+            log.debug("Skipping incremental import, another import is still running");
+            return;
+        }
+        try {
+            if (clipRepository.findLastFullImport().isEmpty()) {
+                log.debug("Skipping incremental import, there was no full import yet");
+                return;
+            }
+            val startedAt = this.currentTimeProvider.get();
+            try (val ignored = CloseableThreadContext.put("IMPORT_STARTED", startedAt.toLocalDateTime().toString());
+                 val input = mediathekListeClient.openMediathekListeDiff()) {
+                log.debug("Starting an incremental import");
+                if (importList("an incremental", importer.createList(input), clipRepository::addClips)) {
+                    clipRepository.saveFingerprints();
+                }
+            } catch (final IOException | RuntimeException e) {
+                log.warn("Exception during incremental import.", e);
+            }
+        } finally {
+            importLock.unlock();
+        }
+    }
+
+    private void performFullImport() {
         val startedAt = this.currentTimeProvider.get();
         try (val ignored = CloseableThreadContext.put("IMPORT_STARTED", startedAt.toLocalDateTime().toString())) {
             log.info("Starting a full import");
+            val knownVersion = clipRepository.findLastFullImportVersion().orElse(ListVersion.UNKNOWN);
+            Optional<ListVersion> importedVersion;
             try {
-                var entryUpdateList = new ArrayList<ClipEntry>(1000);
-                val numImported = new AtomicInteger();
-                try (val input = mediathekListeClient.openMediathekListeFull()) {
-                    val list = importer.createList(input);
-                    val it = list.getStream().iterator();
-
-                    while (it.hasNext()) {
-                        if (stopped.get()) {
-                            log.debug("Stopped: terminating import");
-                            return;
-                        }
-                        val e = it.next();
-                        if (numImported.incrementAndGet() % 10000 == 0) {
-                            log.info("Full import yielded {} clips until now", numImported::get);
-                        }
-                        entryUpdateList.add(e);
-                        if (entryUpdateList.size() > 999) {
-                            clipRepository.addClips(entryUpdateList, startedAt);
-                            entryUpdateList = new ArrayList<>(1000);
-                        }
-                    }
-                    if (!entryUpdateList.isEmpty()) {
-                        clipRepository.addClips(entryUpdateList, startedAt);
+                importedVersion = importFullList(mediathekListeClient::openMediathekListeFull, knownVersion);
+            } catch (final IOException | RuntimeException e) {
+                importedVersion = Optional.of(ListVersion.UNKNOWN);
+                if (!mainConfiguration.isFullListStreamingEnabled() || stopped.get()) {
+                    log.warn("Exception during import.", e);
+                } else {
+                    log.warn("Exception during streaming import. Retrying with a downloaded copy of the list.", e);
+                    try {
+                        importedVersion = importFullList(mediathekListeClient::openMediathekListeFullBuffered, knownVersion);
+                    } catch (final IOException | RuntimeException e2) {
+                        log.warn("Exception during import.", e2);
                     }
-                    clipRepository.deleteClipsImportedBefore(startedAt);
-                    log.info("Successfully performed a full import, yielding {} clips", numImported::get);
                 }
-            } catch (final IOException | RuntimeException e) {
-                log.warn("Exception during import.", e);
+            }
+            if (importedVersion.isEmpty()) {
+                return;
             }
             try {
-                clipRepository.updateLastFullImport(this.currentTimeProvider.get());
+                clipRepository.updateLastFullImport(this.currentTimeProvider.get(), importedVersion.get());
+                log.info("Clip query result cache since start: {}", clipRepository.resultCacheStats());
                 scheduleNextFullImport();
             } catch (Exception e) {
                 log.warn("Could not schedule next full import: ", e);
             }
         }
     }
+
+    @FunctionalInterface
+    private interface ListOpener {
+        Optional<ListDownload> open(ListVersion knownVersion) throws IOException;
+    }
+
+    /**
+     * Imports the full list, unless the server or the list's header tell that it's the version imported last time.
+     *
+     * @return the version of the list now in the index, or empty if the import was stopped before completion
+     */
+    private Optional<ListVersion> importFullList(ListOpener listOpener, ListVersion knownVersion) throws IOException {
+        val opened = listOpener.open(knownVersion);
+        if (opened.isEmpty()) {
+            log.info("Full list was not modified since the last import, skipping import");
+            return Optional.of(knownVersion);
+        }
+        try (val download = opened.get()) {
+            val list = importer.createList(download.getInput());
+            val version = download.getVersion().withHash(
+                Optional.ofNullable(list.getMetaData()).flatMap(FilmlisteMetaData::getHash).orElse(null));
+            if (version.hasSameContentAs(knownVersion)) {
+                // closing the download now saves the rest of the transfer, and the whole parse and index pass
+                log.info("Full list has the same hash as the last import ({}), skipping import", version.hash());
+                return Optional.of(version);
+            }
+            try (val fullImport = mainConfiguration.isFullImportRebuildEnabled() ?
+                clipRepository.startFullRebuild() :
+                clipRepository.startFullImport()) {
+                if (!importList("a full", list, fullImport::addClips)) {
+                    return Optional.empty();
+                }
+                fullImport.finish();
+            }
+            return Optional.of(version);
+        }
+    }
+
+    /**
+     * @return false if the import was stopped before completion
+     */
+    private boolean importList(String kind, MediathekListe list, Consumer<ClipRepository.PreparedClips> indexer) {
+        val names = new StringTable(MAX_CANONICAL_NAMES);
+        val pipeline = new ImportPipeline<ClipRow, ClipRepository.PreparedClips>(
+            BATCH_SIZE,
+            Math.max(1, mainConfiguration.importThreads()),
+            rows -> clipRepository.prepareClips(toClipEntries(rows, names)),
+            indexer,
+            stopped::get);
+        if (!pipeline.run(list.getRows().iterator())) {
+            log.debug("Stopped: terminating import");
+            return false;
+        }
+        log.info("Successfully performed {} import, yielding {} list entries with {} distinct channel and show names",
+            kind,
+            pipeline.getStageStatistics().getLast().getItems(),
+            names.size());
+        return true;
+    }
+
+    private List<ClipEntry> toClipEntries(List<ClipRow> rows, StringTable names) {
+        val entries = new ArrayList<ClipEntry>(rows.size());
+        for (val row : rows) {
+            row.toClipEntry(names::canonicalize).ifPresent(entries::add);
+        }
+        return entries;
+    }
 }
@@ -48,8 +48,6 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -99,7 +97,7 @@ public class PrefetchingProxy implements ClipContentUrlGenerator {
         return "%s%sapi/v1/clip-contents/%s".formatted(
             baseUrl,
             baseUrl.endsWith("/") ? "" : "/",
-            IdUtils.encodeId(e.getId()));
+            IdUtils.encodeClipId(e.getId()));
     }
 
     private void handleHead(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -191,18 +189,18 @@ public class PrefetchingProxy implements ClipContentUrlGenerator {
         }
     }
 
-    private String extractClipId(HttpServletRequest request) {
+    private long extractClipId(HttpServletRequest request) {
         val pathInContextString = request.getPathInfo();
         val pathInContext = pathInContextString.split("/");
         if (pathInContext.length == 0) {
             throw new RuntimeException("cant extract clip from URL " + pathInContextString);
         }
         val clipIdString = pathInContext[pathInContext.length - 1];
-        val clipId = new String(Base64.getDecoder().decode(clipIdString), StandardCharsets.UTF_8);
+        val clipId = IdUtils.decodeClipId(clipIdString);
         log.debug(
             "Loading clip for {} request: clip {}, {}",
             request::getMethod,
-            clipId::toString,
+            () -> clipId,
             () -> String.join(
                 ",",
                 "H:" + request.getServerName(),
@@ -101,12 +101,12 @@ public class CacheDirectory {
         IOUtils.closeQuietly(file, e -> log.debug("Could not (quietly) close file.", e));
     }
 
-    private String contentFilename(String clipId) {
-        return IdUtils.encodeId(clipId).concat(".mp4");
+    private String contentFilename(long clipId) {
+        return IdUtils.encodeClipId(clipId).concat(".mp4");
     }
 
-    private String metaFilename(String clipId) {
-        return IdUtils.encodeId(clipId).concat(".json");
+    private String metaFilename(long clipId) {
+        return IdUtils.encodeClipId(clipId).concat(".json");
     }
 
 
@@ -118,7 +118,7 @@ public class CacheDirectory {
             .sum();
     }
 
-    public void writeContent(String clipId, long position, byte[] bytes) throws IOException {
+    public void writeContent(long clipId, long position, byte[] bytes) throws IOException {
         val contentFilename = contentFilename(clipId);
         val contentFile = this.openFiles.get(contentFilename);
         synchronized (contentFile) {
@@ -145,7 +145,7 @@ public class CacheDirectory {
         return Optional.empty();
     }
 
-    public int readContentByte(String clipId, long position) throws IOException {
+    public int readContentByte(long clipId, long position) throws IOException {
         val contentFilename = contentFilename(clipId);
         val contentAccess = this.openIfPresent(contentFilename)
             .orElseThrow(() -> new FileNotFoundException(contentFilename));
@@ -160,7 +160,7 @@ public class CacheDirectory {
         }
     }
 
-    public int readContentBytes(String clipId, long position, byte[] buffer, int off, int len) throws IOException {
+    public int readContentBytes(long clipId, long position, byte[] buffer, int off, int len) throws IOException {
         val contentFilename = contentFilename(clipId);
         val contentAccess = this.openIfPresent(contentFilename)
             .orElseThrow(() -> new FileNotFoundException(contentFilename));
@@ -175,7 +175,7 @@ public class CacheDirectory {
         }
     }
 
-    public synchronized void growContentFile(String clipId, long newSize) throws IOException, CacheSizeExhaustedException {
+    public synchronized void growContentFile(long clipId, long newSize) throws IOException, CacheSizeExhaustedException {
         val contentFilename = contentFilename(clipId);
         val contentAccess = this.openFiles.get(contentFilename);
         synchronized (contentAccess) {
@@ -196,7 +196,7 @@ public class CacheDirectory {
     }
 
 
-    void writeMetadata(String clipId, @NotNull ClipMetadata metadata) throws IOException {
+    void writeMetadata(long clipId, @NotNull ClipMetadata metadata) throws IOException {
         val metaFile = this.openFiles.get(metaFilename(clipId));
         synchronized (metaFile) {
             metaFile.seek(0);
@@ -207,7 +207,7 @@ public class CacheDirectory {
         }
     }
 
-    Optional<ClipMetadata> loadMetadata(String clipId) throws IOException {
+    Optional<ClipMetadata> loadMetadata(long clipId) throws IOException {
         val metaFileAccessOpt = openIfPresent(metaFilename(clipId));
         if (metaFileAccessOpt.isPresent()) {
             val metaFileAccess = metaFileAccessOpt.get();
@@ -218,7 +218,7 @@ public class CacheDirectory {
         }
     }
 
-    public synchronized boolean tryCleanupCacheDir(Set<String> currentlyOpenClipIds) {
+    public synchronized boolean tryCleanupCacheDir(Set<Long> currentlyOpenClipIds) {
         val currentlyOpenFilenames = currentlyOpenClipIds.stream()
             .flatMap(clipId -> Stream.of(this.contentFilename(clipId), this.metaFilename(clipId)))
             .collect(Collectors.toSet());
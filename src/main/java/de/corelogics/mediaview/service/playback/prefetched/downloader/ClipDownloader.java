@@ -60,7 +60,7 @@ class ClipDownloader implements Closeable {
 
     @Getter
     private final String url;
-    private final String clipId;
+    private final long clipId;
     private final int numParallelConnections;
     private final OkHttpClient httpClient;
     private final ClipMetadata metadata;
@@ -72,7 +72,7 @@ class ClipDownloader implements Closeable {
             MainConfiguration mainConfiguration,
             CacheDirectory cacheDir,
             OkHttpClient httpClient,
-            String clipId,
+            long clipId,
             String url) throws UpstreamNotFoundException, UpstreamReadFailedException, CacheSizeExhaustedException {
         this.mainConfiguration = mainConfiguration;
         this.cacheDir = cacheDir;
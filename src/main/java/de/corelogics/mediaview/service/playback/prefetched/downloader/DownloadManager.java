@@ -44,7 +44,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 @Log4j2
 public class DownloadManager {
-    private final Map<String, ClipDownloaderHolder> clipIdToDl = new HashMap<>();
+    private final Map<Long, ClipDownloaderHolder> clipIdToDl = new HashMap<>();
     private final MainConfiguration mainConfiguration;
     private final CacheDirectory cacheDirectory;
     private final OkHttpClient httpClient;
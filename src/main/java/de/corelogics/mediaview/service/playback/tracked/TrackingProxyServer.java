@@ -42,9 +42,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.InetAddress;
-import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
-import java.util.Base64;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -102,18 +100,18 @@ public class TrackingProxyServer implements ClipContentUrlGenerator {
         }
     }
 
-    private String extractClipId(HttpServletRequest request) {
+    private long extractClipId(HttpServletRequest request) {
         val pathInContextString = request.getPathInfo();
         val pathInContext = pathInContextString.split("/");
         if (pathInContext.length == 0) {
             throw new RuntimeException("cant extract clip from URL " + pathInContextString);
         }
         val clipIdString = pathInContext[pathInContext.length - 1];
-        val clipId = new String(Base64.getDecoder().decode(clipIdString), StandardCharsets.UTF_8);
+        val clipId = IdUtils.decodeClipId(clipIdString);
         log.debug(
             "Loading clip for {} request: clip {}, {}",
             request::getMethod,
-            clipId::toString,
+            () -> clipId,
             () -> String.join(
                 ",",
                 "H:" + request.getServerName(),
@@ -137,7 +135,7 @@ public class TrackingProxyServer implements ClipContentUrlGenerator {
         return "%s%sapi/v1/clip-trackings/%s".formatted(
             baseUrl,
             baseUrl.endsWith("/") ? "" : "/",
-            IdUtils.encodeId(e.getId()));
+            IdUtils.encodeClipId(e.getId()));
     }
 
 }
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.service.repository.clip;
+
+import de.corelogics.mediaview.client.mediathekview.ClipEntry;
+import lombok.val;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Converts clips to the binary form stored in the index, and back. Times are kept in epoch seconds, and durations
+ * in seconds, whenever that loses nothing. The ID is kept as well, so reading a clip doesn't hash its URL again.
+ */
+final class ClipCodec {
+    // all times of the list are in this zone. Others are written by name.
+    private static final ZoneId DEFAULT_ZONE = ZoneId.of("Europe/Berlin");
+
+    private static final Pattern DURATION = Pattern.compile("(\\d{2}):([0-5]\\d):([0-5]\\d)");
+
+    private ClipCodec() {
+    }
+
+    static BytesRef encode(ClipEntry entry) {
+        val out = new ByteBuffersDataOutput(256);
+        try {
+            out.writeLong(entry.getId());
+            out.writeString(entry.getChannelName());
+            out.writeString(entry.getContainedIn());
+            out.writeString(entry.getTitle());
+            val broadcastedAt = entry.getBroadcastedAt();
+            out.writeZLong(broadcastedAt.toEpochSecond());
+            out.writeVInt(broadcastedAt.getNano());
+            out.writeString(DEFAULT_ZONE.equals(broadcastedAt.getZone()) ? "" : broadcastedAt.getZone().getId());
+            writeDuration(out, entry.getDuration());
+            out.writeZLong(entry.getSize());
+            out.writeString(entry.getUrl());
+            out.writeString(entry.getUrlHd());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new BytesRef(out.toArrayCopy());
+    }
+
+    /**
+     * @param names maps channel and show names to canonical instances
+     */
+    static ClipEntry decode(BytesRef payload, UnaryOperator<String> names) throws IOException {
+        val in = new ByteArrayDataInput(payload.bytes, payload.offset, payload.length);
+        val id = in.readLong();
+        val channelName = names.apply(in.readString());
+        val containedIn = names.apply(in.readString());
+        val title = in.readString();
+        val epochSecond = in.readZLong();
+        val nanos = in.readVInt();
+        val zone = in.readString();
+        val broadcastedAt = ZonedDateTime.ofInstant(
+            Instant.ofEpochSecond(epochSecond, nanos),
+            zone.isEmpty() ? DEFAULT_ZONE : ZoneId.of(zone));
+        val duration = readDuration(in);
+        val size = in.readZLong();
+        val url = in.readString();
+        val urlHd = in.readString();
+        return new ClipEntry(id, channelName, containedIn, broadcastedAt, title, duration, size, url, urlHd);
+    }
+
+    /**
+     * Durations as "hh:mm:ss" are written as 1 + their seconds, all others as 0 and the text.
+     */
+    private static void writeDuration(ByteBuffersDataOutput out, String duration) throws IOException {
+        val matcher = DURATION.matcher(duration);
+        if (matcher.matches()) {
+            out.writeVInt(1
+                + Integer.parseInt(matcher.group(1)) * 3600
+                + Integer.parseInt(matcher.group(2)) * 60
+                + Integer.parseInt(matcher.group(3)));
+        } else {
+            out.writeVInt(0);
+            out.writeString(duration);
+        }
+    }
+
+    private static String readDuration(ByteArrayDataInput in) throws IOException {
+        val encoded = in.readVInt();
+        if (0 == encoded) {
+            return in.readString();
+        }
+        val seconds = encoded - 1;
+        return "%02d:%02d:%02d".formatted(seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.corelogics.mediaview.service.repository.clip;
+
+import lombok.val;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * The content fingerprint of every clip in the index, by clip id. Kept as two sorted arrays, which is about 16 bytes
+ * per clip. Immutable; changes create a new instance.
+ */
+class ClipFingerprints {
+    static final ClipFingerprints EMPTY = new ClipFingerprints(new long[0], new long[0]);
+
+    private static final int FILE_MAGIC = 0x434c4650;
+    private static final int FILE_VERSION = 1;
+
+    private final long[] ids;
+    private final long[] fingerprints;
+
+    private ClipFingerprints(long[] ids, long[] fingerprints) {
+        this.ids = ids;
+        this.fingerprints = fingerprints;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return the position of the id, or a negative value if it's unknown
+     */
+    int indexOf(long id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    long idAt(int index) {
+        return ids[index];
+    }
+
+    long fingerprintAt(int index) {
+        return fingerprints[index];
+    }
+
+    /**
+     * @return these fingerprints, with the given ones added or replacing the known ones
+     */
+    ClipFingerprints withChanges(ClipFingerprints changes) {
+        val mergedIds = new long[ids.length + changes.ids.length];
+        val mergedFingerprints = new long[mergedIds.length];
+        int i = 0;
+        int c = 0;
+        int m = 0;
+        while (i < ids.length || c < changes.ids.length) {
+            if (c == changes.ids.length || (i < ids.length && ids[i] < changes.ids[c])) {
+                mergedIds[m] = ids[i];
+                mergedFingerprints[m++] = fingerprints[i++];
+            } else {
+                if (i < ids.length && ids[i] == changes.ids[c]) {
+                    i++;
+                }
+                mergedIds[m] = changes.ids[c];
+                mergedFingerprints[m++] = changes.fingerprints[c++];
+            }
+        }
+        return new ClipFingerprints(Arrays.copyOf(mergedIds, m), Arrays.copyOf(mergedFingerprints, m));
+    }
+
+    void writeTo(Path file) throws IOException {
+        val tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (val out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeLong(ids[i]);
+                out.writeLong(fingerprints[i]);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static ClipFingerprints readFrom(Path file) throws IOException {
+        try (val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Unknown file format of " + file);
+            }
+            val count = in.readInt();
+            val builder = new Builder(count);
+            for (int i = 0; i < count; i++) {
+                builder.add(in.readLong(), in.readLong());
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Collects fingerprints in any order. An id added more than once keeps the fingerprint it was added with last.
+     */
+    static class Builder {
+        private long[] ids;
+        private long[] fingerprints;
+        private int size;
+
+        Builder(int expectedSize) {
+            this.ids = new long[Math.max(16, expectedSize)];
+            this.fingerprints = new long[ids.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        Builder add(long id, long fingerprint) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                fingerprints = Arrays.copyOf(fingerprints, size * 2);
+            }
+            ids[size] = id;
+            fingerprints[size++] = fingerprint;
+            return this;
+        }
+
+        Builder addAll(Builder other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.ids[i], other.fingerprints[i]);
+            }
+            return this;
+        }
+
+        ClipFingerprints build() {
+            val sortedIds = Arrays.copyOf(ids, size);
+            Arrays.sort(sortedIds);
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (0 == unique || sortedIds[unique - 1] != sortedIds[i]) {
+                    sortedIds[unique++] = sortedIds[i];
+                }
+            }
+            val sortedFingerprints = new long[unique];
+            // in the order added, so that of several entries for the same id, the last one added wins
+            for (int i = 0; i < size; i++) {
+                sortedFingerprints[Arrays.binarySearch(sortedIds, 0, unique, ids[i])] = fingerprints[i];
+            }
+            return new ClipFingerprints(Arrays.copyOf(sortedIds, unique), sortedFingerprints);
+        }
+    }
+}
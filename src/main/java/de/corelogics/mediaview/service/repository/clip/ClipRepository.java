@@ -24,107 +24,341 @@
 
 package de.corelogics.mediaview.service.repository.clip;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import de.corelogics.mediaview.client.mediatheklist.model.ListVersion;
 import de.corelogics.mediaview.client.mediathekview.ClipEntry;
 import de.corelogics.mediaview.service.base.lucene.LuceneDirectory;
+import de.corelogics.mediaview.service.base.lucene.PartitionedIndex;
 import de.corelogics.mediaview.service.base.lucene.RepoTypeFields;
+import de.corelogics.mediaview.util.HashingUtils;
+import de.corelogics.mediaview.util.StringTable;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.facet.FacetsCollectorManager;
-import org.apache.lucene.facet.FacetsConfig;
-import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.temporal.IsoFields;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toUnmodifiableMap;
 
 @Log4j2
-@RequiredArgsConstructor
 public class ClipRepository {
     private static final String DOCTYPE_CLIP = "clip";
+    // the last full import was saved in a document of this type before schema version 6
     private static final String DOCTYPE_IMPORTINFO = "importinfo";
-    private static final long SCHEMA_VERSION = 2;
+    private static final long SCHEMA_VERSION = 7;
+    private static final String COMMIT_LAST_FULL_IMPORT = "clips.lastFullImport";
+    private static final String COMMIT_LIST_ETAG = "clips.listEtag";
+    private static final String COMMIT_LIST_LAST_MODIFIED = "clips.listLastModified";
+    private static final String COMMIT_LIST_HASH = "clips.listHash";
+    private static final String COMMIT_PARTITIONED = "clips.partitioned";
+    // broadcast weeks are counted in the time zone of the lists
+    private static final ZoneId PARTITION_ZONE = ZoneId.of("Europe/Berlin");
+    private static final int MAX_CANONICAL_NAMES_PER_QUERY = 1000;
+    private static final int MAX_DELETES_PER_CALL = 1000;
+    private static final String FINGERPRINTS_FILE_SUFFIX = "-fingerprints";
+    // 2 MB of bits to tell apart new clips listed for the first time from possible duplicates during a full import
+    private static final int SEEN_BITS = 1 << 24;
+    // in clips, channel or show names held by cached results
+    private static final long MAX_CACHED_RESULT_ENTRIES = 200_000;
 
+    /**
+     * A clip's values are read from its payload. All other fields of a clip are only there to find and sort clips.
+     */
     @RequiredArgsConstructor
     @Getter
     private enum ClipField implements RepoTypeFields {
-        ID(true, false),
-        CHANNELNAME(true, true),
-        CONTAINEDIN(true, true),
-        DURATION(true, true),
-        TITLE(false, true),
-        URL(false, false),
-        URL_HD(false, false),
-        SIZE(true, false),
-        BROADCASTEDAT(true, true),
-        IMPORTEDAT(true, true),
-
-        TYPE(true, false);
+        // term, lowerTerm, facet, sort, stored
+        ID(true, false, false, true, false),
+        CHANNELNAME(false, true, true, true, false),
+        CONTAINEDIN(false, true, true, false, false),
+        TITLE(false, false, false, true, false),
+        BROADCASTEDAT(false, false, false, true, false),
+        FINGERPRINT(false, false, false, true, false),
+        PAYLOAD(false, false, false, false, true);
 
         private final boolean term;
+        private final boolean lowerTerm;
+        private final boolean facet;
         private final boolean sort;
+        private final boolean stored;
     }
 
+    @RequiredArgsConstructor
+    @Getter
+    private enum IndexSortField {
+        CHANNELNAME(new SortField(ClipField.CHANNELNAME.sorted(), SortField.Type.STRING)),
+        BROADCASTEDAT(new SortField(ClipField.BROADCASTEDAT.sorted(), SortField.Type.LONG, true));
+
+        private final SortField sortField;
+
+        /**
+         * @return this field's value of a hit sorted by {@link #INDEX_SORT}
+         */
+        long longValue(FieldDoc doc) {
+            return (Long) doc.fields[ordinal()];
+        }
+    }
+
+    /**
+     * Clips are kept in this order: by channel, and newest broadcast first within a channel. Searches sorted by (a
+     * prefix of) it stop as soon as they have enough hits.
+     */
+    public static final Sort INDEX_SORT = new Sort(Stream.of(IndexSortField.values())
+        .map(IndexSortField::getSortField)
+        .toArray(SortField[]::new));
+
+    private static final Set<String> PAYLOAD_FIELD = Set.of(ClipField.PAYLOAD.stored());
+
     private final LuceneDirectory luceneDirectory;
 
+    // the fingerprints of all clips in the index, loaded on first use. Null whenever they might not match the index.
+    // Clips are written by one import at a time, so writes need no locking beyond what the index does.
+    private volatile ClipFingerprints fingerprints;
+
+    private record ResultKey(String query, List<Object> arguments, long readerVersion) {
+    }
+
+    // results are only valid for the index reader they were read from. Results of replaced readers are never looked
+    // up again, and get evicted.
+    private final Cache<ResultKey, Object> results = Caffeine.newBuilder()
+        .maximumWeight(MAX_CACHED_RESULT_ENTRIES)
+        .weigher((ResultKey key, Object result) -> 1 + switch (result) {
+            case Collection<?> c -> c.size();
+            case Map<?, ?> m -> m.size();
+            case ClipPage p -> p.clips().size();
+            default -> 0;
+        })
+        .recordStats()
+        .build();
+
+    public ClipRepository(LuceneDirectory luceneDirectory) {
+        this.luceneDirectory = luceneDirectory;
+        migrateSchema();
+        migrateLayout();
+    }
+
+    /**
+     * Clips of an older schema can't be found by all queries, or read. They are deleted together with the last
+     * import's info, which makes the next full import start right away, and write all clips again.
+     */
+    private void migrateSchema() {
+        val outdated = new BooleanQuery.Builder()
+            .add(luceneDirectory.createOutdatedQuery(DOCTYPE_CLIP, SCHEMA_VERSION), BooleanClause.Occur.SHOULD)
+            .add(luceneDirectory.createOutdatedQuery(DOCTYPE_IMPORTINFO, SCHEMA_VERSION), BooleanClause.Occur.SHOULD)
+            .build();
+        int outdatedDocuments = luceneDirectory.performSearch("ClipRepository.migrateSchema", searcher -> searcher.count(outdated));
+        if (0 == outdatedDocuments) {
+            return;
+        }
+        log.info("For schema migration, deleting {} clips of an older schema. They'll be imported again.", outdatedDocuments);
+        deleteFingerprintsFile();
+        try {
+            luceneDirectory.performUpdate("ClipRepository.migrateSchema", writer -> writer.deleteDocuments(
+                outdated,
+                luceneDirectory.createDoctypeQuery(DOCTYPE_IMPORTINFO)));
+            for (val partition : luceneDirectory.partitions()) {
+                luceneDirectory.performUpdate("ClipRepository.migrateSchema", partition, writer -> writer.deleteDocuments(outdated));
+            }
+            luceneDirectory.updateCommitData(ClipRepository::removeImportInfo);
+            luceneDirectory.refresh();
+            luceneDirectory.commit();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not perform clip schema migration.", e);
+        }
+    }
+
+    /**
+     * Clips are either all in the index, or all in partitions by broadcast week. When that changes, all clips are
+     * deleted together with the last import's info, and imported again.
+     */
+    private void migrateLayout() {
+        val partitioned = Boolean.toString(luceneDirectory.isPartitioned());
+        // indexes written before partitioning existed aren't partitioned
+        if (partitioned.equals(luceneDirectory.commitData().getOrDefault(COMMIT_PARTITIONED, "false"))) {
+            return;
+        }
+        log.info("{}, they'll be imported again.",
+            luceneDirectory.isPartitioned() ? "Clips are partitioned by broadcast week now" : "Clips aren't partitioned anymore");
+        fingerprints = null;
+        deleteFingerprintsFile();
+        try {
+            luceneDirectory.performUpdate("ClipRepository.migrateLayout", writer -> writer.deleteDocuments(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP)));
+            for (val partition : luceneDirectory.partitions()) {
+                luceneDirectory.dropPartition(partition);
+            }
+            luceneDirectory.updateCommitData(data -> {
+                removeImportInfo(data);
+                data.put(COMMIT_PARTITIONED, partitioned);
+            });
+            luceneDirectory.refresh();
+            luceneDirectory.commit();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not change the clip index layout.", e);
+        }
+    }
+
+    private static void removeImportInfo(Map<String, String> data) {
+        data.remove(COMMIT_LAST_FULL_IMPORT);
+        data.remove(COMMIT_LIST_ETAG);
+        data.remove(COMMIT_LIST_LAST_MODIFIED);
+        data.remove(COMMIT_LIST_HASH);
+    }
+
+    /**
+     * @return the name of the partition holding clips broadcast at that time: its ISO week, like "2025-W07"
+     */
+    static String partitionOf(ZonedDateTime broadcastedAt) {
+        val local = broadcastedAt.withZoneSameInstant(PARTITION_ZONE);
+        return "%d-W%02d".formatted(local.get(IsoFields.WEEK_BASED_YEAR), local.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    /**
+     * @return the names of all partitions holding clips broadcast between both times
+     */
+    static List<String> partitionsBetween(ZonedDateTime from, ZonedDateTime to) {
+        val names = new ArrayList<String>();
+        for (var week = from; !week.isAfter(to); week = week.plusWeeks(1)) {
+            names.add(partitionOf(week));
+        }
+        if (!from.isAfter(to) && !names.contains(partitionOf(to))) {
+            names.add(partitionOf(to));
+        }
+        return names;
+    }
+
     public Optional<ZonedDateTime> findLastFullImport() {
         log.debug("finding last full import");
-        return luceneDirectory.performSearch(searcher -> {
-            val result = searcher.search(
-                new BooleanQuery.Builder()
-                    .add(luceneDirectory.createDoctypeQuery(DOCTYPE_IMPORTINFO), BooleanClause.Occur.MUST)
-                    .add(new TermQuery(new Term(ClipField.ID.term(), ClipField.ID.term(DOCTYPE_IMPORTINFO))), BooleanClause.Occur.MUST)
-                    .build(),
-                1);
-            if (result.scoreDocs.length > 0) {
-                val doc = searcher.getIndexReader().storedFields().document(result.scoreDocs[0].doc);
-                return Optional.of(ZonedDateTime.parse(doc.get(ClipField.IMPORTEDAT.value())));
-            }
+        return Optional.ofNullable(luceneDirectory.commitData().get(COMMIT_LAST_FULL_IMPORT)).map(ZonedDateTime::parse);
+    }
+
+    /**
+     * @return the version of the list imported by the last full import, if there was one
+     */
+    public Optional<ListVersion> findLastFullImportVersion() {
+        log.debug("finding last full import's list version");
+        val data = luceneDirectory.commitData();
+        if (!data.containsKey(COMMIT_LAST_FULL_IMPORT)) {
             return Optional.empty();
-        });
+        }
+        return Optional.of(new ListVersion(
+            data.get(COMMIT_LIST_ETAG),
+            data.get(COMMIT_LIST_LAST_MODIFIED),
+            data.get(COMMIT_LIST_HASH)));
     }
 
-    public synchronized void updateLastFullImport(ZonedDateTime dateTime) {
-        log.debug("Updating last full import time to {}", dateTime);
+    /**
+     * The last full import is saved with the index commit, together with the clips it wrote.
+     */
+    public void updateLastFullImport(ZonedDateTime dateTime, ListVersion listVersion) {
+        log.debug("Updating last full import time to {}, list version {}", dateTime, listVersion);
         try {
-            val document = luceneDirectory.buildDocument(DOCTYPE_IMPORTINFO, SCHEMA_VERSION)
-                .addField(ClipField.ID, DOCTYPE_IMPORTINFO)
-                .addField(ClipField.IMPORTEDAT, dateTime)
-                .build();
-            luceneDirectory.performUpdate(new StandardAnalyzer(), writer ->
-                writer.updateDocument(
-                    new Term(ClipField.ID.term(), ClipField.ID.term(DOCTYPE_IMPORTINFO)),
-                    document));
+            luceneDirectory.updateCommitData(data -> {
+                data.put(COMMIT_LAST_FULL_IMPORT, dateTime.toString());
+                putOrRemove(data, COMMIT_LIST_ETAG, listVersion.etag());
+                putOrRemove(data, COMMIT_LIST_LAST_MODIFIED, listVersion.lastModified());
+                putOrRemove(data, COMMIT_LIST_HASH, listVersion.hash());
+            });
+            // an import is done once this is saved
+            luceneDirectory.refresh();
+            luceneDirectory.commit();
         } catch (final IOException e) {
-            throw new RuntimeException("Could not create index writer", e);
+            throw new RuntimeException("Could not save last full import", e);
         }
     }
 
+    private static void putOrRemove(Map<String, String> data, String key, String value) {
+        if (null == value) {
+            data.remove(key);
+        } else {
+            data.put(key, value);
+        }
+    }
+
+    /**
+     * @return hits and misses of the query result cache, since start
+     */
+    public CacheStats resultCacheStats() {
+        return results.stats();
+    }
+
+    /**
+     * Runs the search, unless the same query was run on the same index reader before. Cached results are shared, so
+     * they must not be modifiable. The index's metrics name it by the query.
+     */
+    private <T> T performCachedSearch(String query, List<Object> arguments, LuceneDirectory.SearchFunction<T> function) {
+        return luceneDirectory.performSearch("ClipRepository." + query, cached(query, arguments, function));
+    }
+
+    /**
+     * Like {@link #performCachedSearch(String, List, LuceneDirectory.SearchFunction)}, only searching the named
+     * partitions when the index is partitioned.
+     */
+    private <T> T performCachedSearch(String query, List<Object> arguments, Collection<String> partitions,
+                                      LuceneDirectory.SearchFunction<T> function) {
+        return luceneDirectory.performSearch("ClipRepository." + query, partitions, cached(query, arguments, function));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> LuceneDirectory.SearchFunction<T> cached(String query, List<Object> arguments, LuceneDirectory.SearchFunction<T> function) {
+        return searcher -> {
+            val key = new ResultKey(query, arguments, LuceneDirectory.readerVersion(searcher));
+            val cached = results.getIfPresent(key);
+            if (null != cached) {
+                return (T) cached;
+            }
+            val result = function.search(searcher);
+            results.put(key, result);
+            return result;
+        };
+    }
+
     public List<String> findAllChannels() {
         log.debug("Finding all channels");
-        return luceneDirectory.performSearch(searcher -> {
+        return performCachedSearch("allChannels", List.of(), searcher -> {
             val query = luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP);
-            val state = new DefaultSortedSetDocValuesReaderState(searcher.getIndexReader(), ClipField.CHANNELNAME.facet(), new FacetsConfig());
+            val state = luceneDirectory.facetState(searcher, ClipField.CHANNELNAME);
             val facetResults = FacetsCollectorManager.search(searcher, query, 10000, new FacetsCollectorManager());
             val facets = new SortedSetDocValuesFacetCounts(state, facetResults.facetsCollector());
             return Stream.of(facets.getTopChildren(10000, ClipField.CHANNELNAME.facet()).labelValues)
                 .map(l -> l.label)
-                .collect(Collectors.toList());
+                .toList();
         });
     }
 
@@ -133,17 +367,17 @@ public class ClipRepository {
      */
     public Map<String, Integer> findAllContainedIns(String channelName) {
         log.debug("Finding all containedIns for channel '{}'", channelName);
-        return luceneDirectory.performSearch(searcher -> {
+        return performCachedSearch("allContainedIns", List.of(channelName), searcher -> {
             val query = new BooleanQuery.Builder()
                 .add(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP), BooleanClause.Occur.MUST)
                 .add(new TermQuery(new Term(ClipField.CHANNELNAME.termLower(), ClipField.CHANNELNAME.termLower(channelName))), BooleanClause.Occur.MUST)
                 .build();
-            val state = new DefaultSortedSetDocValuesReaderState(searcher.getIndexReader(), ClipField.CONTAINEDIN.facet(), new FacetsConfig());
+            val state = luceneDirectory.facetState(searcher, ClipField.CONTAINEDIN);
             val facetResults = FacetsCollectorManager.search(searcher, query, 10000, new FacetsCollectorManager());
             val facets = new SortedSetDocValuesFacetCounts(state, facetResults.facetsCollector());
             return Stream.of(facets.getTopChildren(10000, ClipField.CONTAINEDIN.facet()).labelValues)
                 .map(l -> Map.entry(l.label, l.value.intValue()))
-                .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
+                .collect(toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
 
         });
     }
@@ -153,57 +387,131 @@ public class ClipRepository {
      */
     public Map<String, Integer> findAllContainedIns(String channelName, String startingWith) {
         log.debug("Finding all containedIns for channel '{}' starting with '{}'", channelName, startingWith);
-        return luceneDirectory.performSearch(searcher -> {
+        return performCachedSearch("allContainedInsStartingWith", List.of(channelName, startingWith), searcher -> {
             val query = new BooleanQuery.Builder()
                 .add(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP), BooleanClause.Occur.MUST)
                 .add(new TermQuery(new Term(ClipField.CHANNELNAME.termLower(), ClipField.CHANNELNAME.termLower(channelName))), BooleanClause.Occur.MUST)
                 .add(new PrefixQuery(new Term(ClipField.CONTAINEDIN.termLower(), ClipField.CONTAINEDIN.termLower(startingWith))), BooleanClause.Occur.MUST)
                 .build();
-            val state = new DefaultSortedSetDocValuesReaderState(searcher.getIndexReader(), ClipField.CONTAINEDIN.facet(), new FacetsConfig());
+            val state = luceneDirectory.facetState(searcher, ClipField.CONTAINEDIN);
             val facetResults = FacetsCollectorManager.search(searcher, query, 10000, new FacetsCollectorManager());
             val facets = new SortedSetDocValuesFacetCounts(state, facetResults.facetsCollector());
             return Stream.of(facets.getTopChildren(10000, ClipField.CONTAINEDIN.facet()).labelValues)
                 .map(l -> Map.entry(l.label, l.value.intValue()))
-                .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
+                .collect(toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
         });
     }
 
-    private ClipEntry clipEntryFromDocument(Document result) {
-        return new ClipEntry(
-            result.get(ClipField.CHANNELNAME.value()),
-            result.get(ClipField.CONTAINEDIN.value()),
-            ZonedDateTime.parse(result.get(ClipField.BROADCASTEDAT.value())),
-            result.get(ClipField.TITLE.value()),
-            result.get(ClipField.DURATION.value()),
-            result.getField(ClipField.SIZE.value()).numericValue().longValue(),
-            result.get(ClipField.URL.value()),
-            result.get(ClipField.URL_HD.value()));
+    private static ClipEntry loadClipEntry(StoredFields storedFields, int doc, UnaryOperator<String> names) throws IOException {
+        return ClipCodec.decode(
+            storedFields.document(doc, PAYLOAD_FIELD).getBinaryValue(ClipField.PAYLOAD.stored()),
+            names);
     }
 
     public List<ClipEntry> findAllClips(String channelId, String containedIn) {
-        log.debug("Finding all clips for channel '{}' and containedIn '{}'", channelId, containedIn);
-        return luceneDirectory.performSearch(searcher -> {
-            val result = searcher.search(
-                new BooleanQuery.Builder()
-                    .add(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP), BooleanClause.Occur.MUST)
-                    .add(new TermQuery(new Term(ClipField.CONTAINEDIN.termLower(), ClipField.CONTAINEDIN.termLower(containedIn))), BooleanClause.Occur.MUST)
-                    .add(new TermQuery(new Term(ClipField.CHANNELNAME.termLower(), ClipField.CHANNELNAME.termLower(channelId))), BooleanClause.Occur.MUST)
-                    .build(),
-                1000,
-                new Sort(
-                    new SortField(ClipField.BROADCASTEDAT.sorted(), SortField.Type.LONG, true),
-                    new SortField(ClipField.TITLE.sorted(), SortField.Type.STRING)));
-            val clipEntries = new ArrayList<ClipEntry>(result.scoreDocs.length);
-            for (val doc : result.scoreDocs) {
-                clipEntries.add(clipEntryFromDocument(searcher.storedFields().document(doc.doc)));
+        return findClips(channelId, containedIn, List.of(), 0, Integer.MAX_VALUE).clips();
+    }
+
+    /**
+     * @return the clips of the show from offset on, at most limit of them. Only those are loaded from the index.
+     */
+    public ClipPage findClips(String channelId, String containedIn, List<ClipSortOrder> order, int offset, int limit) {
+        log.debug("Finding clips {} to {} for channel '{}' and containedIn '{}', ordered by {}", offset, offset + limit, channelId, containedIn, order);
+        return performCachedSearch("clips", List.of(channelId, containedIn, order, offset, limit), searcher -> {
+            val query = createShowQuery(channelId, containedIn);
+            val count = searcher.count(query);
+            // the collector's queues are as large as numHits, even for "all clips" of a small show
+            val numHits = (int) Math.min((long) offset + limit, Math.max(1, count));
+            // not counting all hits lets searches in index order stop after the window
+            val result = searcher.search(query, new TopFieldCollectorManager(createClipSort(order), numHits, null, numHits));
+            val clipEntries = new ArrayList<ClipEntry>(Math.max(0, result.scoreDocs.length - offset));
+            val names = new StringTable(MAX_CANONICAL_NAMES_PER_QUERY);
+            val storedFields = searcher.storedFields();
+            for (int i = offset; i < result.scoreDocs.length; i++) {
+                clipEntries.add(loadClipEntry(storedFields, result.scoreDocs[i].doc, names::canonicalize));
+            }
+            return new ClipPage(Collections.unmodifiableList(clipEntries), count);
+        });
+    }
+
+    /**
+     * Unless asked for another order, clips are returned in index order. Within a show, that's newest first.
+     */
+    private static Sort createClipSort(List<ClipSortOrder> order) {
+        if (order.isEmpty()) {
+            return INDEX_SORT;
+        }
+        val sortFields = new ArrayList<SortField>(order.size() + 2);
+        for (val o : order) {
+            sortFields.add(createSortField(o.property(), o.ascending()));
+        }
+        if (order.stream().noneMatch(o -> o.property() == ClipSortOrder.Property.BROADCASTED_AT)) {
+            sortFields.add(createSortField(ClipSortOrder.Property.BROADCASTED_AT, false));
+        }
+        if (order.stream().noneMatch(o -> o.property() == ClipSortOrder.Property.TITLE)) {
+            sortFields.add(createSortField(ClipSortOrder.Property.TITLE, true));
+        }
+        return new Sort(sortFields.toArray(SortField[]::new));
+    }
+
+    private static SortField createSortField(ClipSortOrder.Property property, boolean ascending) {
+        return switch (property) {
+            case TITLE -> new SortField(ClipField.TITLE.sorted(), SortField.Type.STRING, !ascending);
+            case BROADCASTED_AT -> new SortField(ClipField.BROADCASTEDAT.sorted(), SortField.Type.LONG, !ascending);
+        };
+    }
+
+    /**
+     * @return the newest clips of all channels
+     */
+    public List<ClipEntry> findNewestClips(int limit) {
+        log.debug("Finding the {} newest clips", limit);
+        val channels = findAllChannels();
+        return performCachedSearch("newestClips", List.of(limit), searcher -> {
+            // newest first is index order within each channel only, so each channel's search stops after limit hits
+            val newest = new ArrayList<FieldDoc>();
+            for (val channel : channels) {
+                val result = searcher.search(
+                    new BooleanQuery.Builder()
+                        .add(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP), BooleanClause.Occur.MUST)
+                        .add(new TermQuery(new Term(ClipField.CHANNELNAME.termLower(), ClipField.CHANNELNAME.termLower(channel))), BooleanClause.Occur.MUST)
+                        .build(),
+                    new TopFieldCollectorManager(INDEX_SORT, limit, null, limit));
+                for (val doc : result.scoreDocs) {
+                    newest.add((FieldDoc) doc);
+                }
+            }
+            newest.sort(Comparator.comparingLong(IndexSortField.BROADCASTEDAT::longValue).reversed());
+            val clipEntries = new ArrayList<ClipEntry>(Math.min(limit, newest.size()));
+            val names = new StringTable(MAX_CANONICAL_NAMES_PER_QUERY);
+            val storedFields = searcher.storedFields();
+            for (val doc : newest.subList(0, Math.min(limit, newest.size()))) {
+                clipEntries.add(loadClipEntry(storedFields, doc.doc, names::canonicalize));
             }
-            return clipEntries;
+            return Collections.unmodifiableList(clipEntries);
         });
     }
 
-    public Optional<ClipEntry> findClipById(String id) {
-        log.debug("Finding clip for id '{}'", id);
-        return luceneDirectory.performSearch(searcher -> {
+    /**
+     * @return the number of clips in the show, without loading them
+     */
+    public int countClips(String channelId, String containedIn) {
+        log.debug("Counting clips for channel '{}' and containedIn '{}'", channelId, containedIn);
+        return performCachedSearch("countClips", List.of(channelId, containedIn), searcher ->
+            searcher.count(createShowQuery(channelId, containedIn)));
+    }
+
+    private Query createShowQuery(String channelId, String containedIn) {
+        return new BooleanQuery.Builder()
+            .add(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP), BooleanClause.Occur.MUST)
+            .add(new TermQuery(new Term(ClipField.CONTAINEDIN.termLower(), ClipField.CONTAINEDIN.termLower(containedIn))), BooleanClause.Occur.MUST)
+            .add(new TermQuery(new Term(ClipField.CHANNELNAME.termLower(), ClipField.CHANNELNAME.termLower(channelId))), BooleanClause.Occur.MUST)
+            .build();
+    }
+
+    public Optional<ClipEntry> findClipById(long id) {
+        log.debug("Finding clip for id {}", id);
+        return luceneDirectory.performSearch("ClipRepository.findClipById", searcher -> {
             val result = searcher.search(
                 new BooleanQuery.Builder()
                     .add(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP), BooleanClause.Occur.MUST)
@@ -211,7 +519,7 @@ public class ClipRepository {
                     .build(),
                 1);
             if (result.scoreDocs.length > 0) {
-                return Optional.of(clipEntryFromDocument(searcher.storedFields().document(result.scoreDocs[0].doc)));
+                return Optional.of(loadClipEntry(searcher.storedFields(), result.scoreDocs[0].doc, UnaryOperator.identity()));
             }
             return Optional.empty();
         });
@@ -219,62 +527,436 @@ public class ClipRepository {
 
     public List<ClipEntry> findAllClipsForChannelBetween(String channelName, ZonedDateTime startDate, ZonedDateTime endDate) {
         log.debug("Finding clips of channel '{}' between '{}' and '{}'", channelName, startDate, endDate);
-        return luceneDirectory.performSearch(searcher -> {
+        val partitions = partitionsBetween(startDate, endDate);
+        return performCachedSearch("allClipsForChannelBetween", List.of(channelName, startDate, endDate), partitions, searcher -> {
             val result = searcher.search(
                 new BooleanQuery.Builder()
                     .add(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP), BooleanClause.Occur.MUST)
                     .add(new TermQuery(new Term(ClipField.CHANNELNAME.termLower(), ClipField.CHANNELNAME.termLower(channelName))), BooleanClause.Occur.MUST)
-                    .add(NumericDocValuesField.newSlowRangeQuery(ClipField.BROADCASTEDAT.sorted(), startDate.toEpochSecond(), endDate.toEpochSecond()), BooleanClause.Occur.MUST)
+                    .add(luceneDirectory.createTimeRangeQuery(ClipField.BROADCASTEDAT, startDate.toEpochSecond(), endDate.toEpochSecond()), BooleanClause.Occur.MUST)
                     .build(),
                 1000,
                 new Sort(
                     new SortField(ClipField.BROADCASTEDAT.sorted(), SortField.Type.LONG),
                     new SortField(ClipField.TITLE.sorted(), SortField.Type.STRING)));
             val clipEntries = new ArrayList<ClipEntry>(result.scoreDocs.length);
+            val names = new StringTable(MAX_CANONICAL_NAMES_PER_QUERY);
+            val storedFields = searcher.storedFields();
             for (val doc : result.scoreDocs) {
-                clipEntries.add(clipEntryFromDocument(searcher.storedFields().document(doc.doc)));
+                clipEntries.add(loadClipEntry(storedFields, doc.doc, names::canonicalize));
             }
-            return clipEntries;
+            return Collections.unmodifiableList(clipEntries);
         });
     }
 
-    public synchronized void deleteClipsImportedBefore(ZonedDateTime startedAt) {
-        log.debug("Deleting all clips not imported at {}", startedAt);
+    /**
+     * Runs the queries behind browsing channels, shows, and missed shows once, so the index parts they need are read
+     * before the first DLNA client browses.
+     */
+    public void warmUp() {
+        val startedAt = System.nanoTime();
+        val now = ZonedDateTime.now();
+        val channels = findAllChannels();
+        for (val channel : channels) {
+            findAllContainedIns(channel);
+            findAllClipsForChannelBetween(channel, now.minusDays(7), now);
+        }
+        log.info("Warmed up the index for {} channels in {}ms", channels.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    /**
+     * A batch of clips, converted into index documents but not yet written. Creating them is independent of the
+     * index, and can be done concurrently.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class PreparedClips {
+        private final List<Term> ids;
+        private final List<Document> documents;
+        private final long[] idValues;
+        private final long[] fingerprints;
+        private final String[] partitions;
+
+        public int size() {
+            return documents.size();
+        }
+    }
+
+    public PreparedClips prepareClips(Collection<ClipEntry> clipEntries) {
+        val ids = new ArrayList<Term>(clipEntries.size());
+        val documents = new ArrayList<Document>(clipEntries.size());
+        val idValues = new long[clipEntries.size()];
+        val fingerprints = new long[clipEntries.size()];
+        val partitions = new String[clipEntries.size()];
+        for (val e : clipEntries) {
+            log.debug("Preparing document with id '{}': '{}'", e.getId(), e.getTitle());
+            val documentId = e.getId();
+            val fingerprint = fingerprintOf(e);
+            documents.add(luceneDirectory.buildDocument(DOCTYPE_CLIP, SCHEMA_VERSION)
+                .addField(ClipField.ID, documentId)
+                .addRecurringField(ClipField.CHANNELNAME, e.getChannelName())
+                .addRecurringField(ClipField.CONTAINEDIN, e.getContainedIn())
+                .addField(ClipField.TITLE, e.getTitle())
+                .addField(ClipField.BROADCASTEDAT, e.getBroadcastedAt())
+                .addField(ClipField.PAYLOAD, ClipCodec.encode(e))
+                .addField(ClipField.FINGERPRINT, fingerprint)
+                .build());
+            idValues[ids.size()] = documentId;
+            fingerprints[ids.size()] = fingerprint;
+            // without partitioning, all clips go into the index itself
+            partitions[ids.size()] = luceneDirectory.isPartitioned() ? partitionOf(e.getBroadcastedAt()) : "";
+            ids.add(new Term(ClipField.ID.term(), ClipField.ID.term(documentId)));
+        }
+        return new PreparedClips(ids, documents, idValues, fingerprints, partitions);
+    }
+
+    /**
+     * Writes the clips at the positions into the partitions of their broadcast weeks. Clips that may be in their
+     * partition already replace it there. Clips written before may have had another broadcast time, so with
+     * partitioning, they're deleted from all other partitions.
+     */
+    private void writeClips(PreparedClips preparedClips, List<Integer> positions, IntPredicate replaced,
+                            IntPredicate writtenBefore, PartitionedIndex index) throws IOException {
+        val byPartition = positions.stream().collect(Collectors.groupingBy(i -> preparedClips.partitions[i]));
+        for (val partition : byPartition.entrySet()) {
+            index.performUpdate("ClipRepository.writeClips", partition.getKey(), writer -> {
+                for (val i : partition.getValue()) {
+                    if (replaced.test(i)) {
+                        writer.updateDocument(preparedClips.ids.get(i), preparedClips.documents.get(i));
+                    } else {
+                        writer.addDocument(preparedClips.documents.get(i));
+                    }
+                }
+            });
+        }
+        if (!luceneDirectory.isPartitioned()) {
+            return;
+        }
+        for (val partition : index.partitions()) {
+            val elsewhere = positions.stream()
+                .filter(i -> writtenBefore.test(i) && !partition.equals(preparedClips.partitions[i]))
+                .map(preparedClips.ids::get)
+                .toArray(Term[]::new);
+            if (elsewhere.length > 0) {
+                index.performUpdate("ClipRepository.writeClips", partition, writer -> writer.deleteDocuments(elsewhere));
+            }
+        }
+    }
+
+    /**
+     * Covers everything a clip is made of except its import time, so that a clip's fingerprint only changes when the
+     * list changed it.
+     */
+    private static long fingerprintOf(ClipEntry e) {
+        return HashingUtils.hash(
+            e.getChannelName(),
+            e.getContainedIn(),
+            e.getBroadcastedAt().toString(),
+            e.getTitle(),
+            e.getDuration(),
+            Long.toString(e.getSize()),
+            e.getUrl(),
+            e.getUrlHd());
+    }
+
+    /**
+     * Adds or replaces the clips, whether they changed or not. They can be found as soon as this returns.
+     */
+    @SneakyThrows(IOException.class)
+    public void addClips(PreparedClips preparedClips) {
+        log.debug("Adding {} ClipEntries", preparedClips::size);
+        val known = currentFingerprints();
+        deleteFingerprintsFile();
+        writeClips(
+            preparedClips,
+            IntStream.range(0, preparedClips.size()).boxed().toList(),
+            i -> true,
+            i -> known.indexOf(preparedClips.idValues[i]) >= 0,
+            luceneDirectory);
+        luceneDirectory.refresh();
+        val changes = new ClipFingerprints.Builder(preparedClips.size());
+        for (int i = 0; i < preparedClips.size(); i++) {
+            changes.add(preparedClips.idValues[i], preparedClips.fingerprints[i]);
+        }
+        fingerprints = known.withChanges(changes.build());
+    }
+
+    public void addClips(Collection<ClipEntry> clipEntries) {
+        addClips(prepareClips(clipEntries));
+    }
+
+    /**
+     * Keeps the fingerprints next to the index, so they need not be read from the index after a restart.
+     */
+    public void saveFingerprints() {
+        val saved = fingerprints;
+        if (null == saved) {
+            return;
+        }
+        luceneDirectory.siblingFile(FINGERPRINTS_FILE_SUFFIX).ifPresent(file -> {
+            try {
+                // the saved fingerprints must not cover clips that are lost if the process dies
+                luceneDirectory.commit();
+                saved.writeTo(file);
+            } catch (final IOException e) {
+                log.warn("Could not save clip fingerprints to {}", file, e);
+            }
+        });
+    }
+
+    /**
+     * Starts a full import, which only writes clips that are new or changed since the last import, and deletes the
+     * ones missing from the list when finished.
+     */
+    public FullImport startFullImport() {
+        val known = currentFingerprints();
+        // until the import is finished, the index is somewhere between the old and the new list
+        fingerprints = null;
+        deleteFingerprintsFile();
+        return new FullImport(known, null);
+    }
+
+    /**
+     * Starts a full import, which writes all clips into a new index and replaces the clips in the index with it when
+     * finished. Searches keep using the old clips until then.
+     */
+    public FullImport startFullRebuild() throws IOException {
+        val rebuild = luceneDirectory.startRebuild();
+        fingerprints = null;
+        deleteFingerprintsFile();
+        return new FullImport(ClipFingerprints.EMPTY, rebuild);
+    }
+
+    /**
+     * Closing it before it's finished abandons the import. A rebuild is then discarded, while clips written by a regular
+     * full import stay in the index.
+     */
+    public final class FullImport implements Closeable {
+        private final ClipFingerprints known;
+        private final LuceneDirectory.Rebuild rebuild;
+        private final long[] fingerprintsInIndex;
+        private final BitSet listed;
+        private final ClipFingerprints.Builder imported;
+        // new clips written by this import. Clips known before are tracked by their position instead.
+        private final BitSet probablyWritten = new BitSet(SEEN_BITS);
+        private int unchanged;
+        private int written;
+
+        private FullImport(ClipFingerprints known, LuceneDirectory.Rebuild rebuild) {
+            this.known = known;
+            this.rebuild = rebuild;
+            this.fingerprintsInIndex = new long[known.size()];
+            for (int i = 0; i < fingerprintsInIndex.length; i++) {
+                fingerprintsInIndex[i] = known.fingerprintAt(i);
+            }
+            this.listed = new BitSet(known.size());
+            this.imported = new ClipFingerprints.Builder(known.size());
+        }
+
+        @SneakyThrows(IOException.class)
+        public void addClips(PreparedClips preparedClips) {
+            if (null != rebuild) {
+                addToRebuild(preparedClips);
+                return;
+            }
+            val changed = new ArrayList<Integer>();
+            val writtenBefore = new BitSet(preparedClips.size());
+            for (int i = 0; i < preparedClips.size(); i++) {
+                val id = preparedClips.idValues[i];
+                val fingerprint = preparedClips.fingerprints[i];
+                imported.add(id, fingerprint);
+                val position = known.indexOf(id);
+                if (position >= 0) {
+                    listed.set(position);
+                    if (fingerprintsInIndex[position] == fingerprint) {
+                        continue;
+                    }
+                    fingerprintsInIndex[position] = fingerprint;
+                    writtenBefore.set(i);
+                } else if (isProbablyWritten(id)) {
+                    // a new clip listed twice, maybe in another week
+                    writtenBefore.set(i);
+                }
+                changed.add(i);
+            }
+            unchanged += preparedClips.size() - changed.size();
+            written += changed.size();
+            log.debug("Writing {} of {} ClipEntries, the others are unchanged", changed.size(), preparedClips.size());
+            if (!changed.isEmpty()) {
+                writeClips(preparedClips, changed, i -> true, writtenBefore::get, luceneDirectory);
+            }
+        }
+
+        /**
+         * A clip listed twice must replace its first document instead of being added again. Only clips that may have
+         * been seen before pay for that lookup. The import adds batches in list order, so the last listing wins.
+         */
+        private void addToRebuild(PreparedClips preparedClips) throws IOException {
+            val relisted = new BitSet(preparedClips.size());
+            for (int i = 0; i < preparedClips.size(); i++) {
+                imported.add(preparedClips.idValues[i], preparedClips.fingerprints[i]);
+                if (isProbablyWritten(preparedClips.idValues[i])) {
+                    relisted.set(i);
+                }
+            }
+            writeClips(preparedClips, IntStream.range(0, preparedClips.size()).boxed().toList(), relisted::get, relisted::get, rebuild);
+            written += preparedClips.size();
+        }
+
+        /**
+         * Marks the clip as written by this import.
+         *
+         * @return whether it was probably written by this import before. If not, it's certain it wasn't.
+         */
+        private boolean isProbablyWritten(long id) {
+            val slot = (int) id & (SEEN_BITS - 1);
+            if (probablyWritten.get(slot)) {
+                return true;
+            }
+            probablyWritten.set(slot);
+            return false;
+        }
+
+        /**
+         * Deletes all clips that were in the index before, but not in the imported list. A rebuild replaces all clips
+         * in the index instead.
+         */
+        @SneakyThrows(IOException.class)
+        public void finish() {
+            if (null != rebuild) {
+                rebuild.replace(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP));
+                log.info("Full import rebuilt the index with {} clips", written);
+                fingerprints = imported.build();
+                saveFingerprints();
+                return;
+            }
+            val gone = new ArrayList<Term>();
+            for (int i = listed.nextClearBit(0); i < known.size(); i = listed.nextClearBit(i + 1)) {
+                gone.add(new Term(ClipField.ID.term(), ClipField.ID.term(known.idAt(i))));
+            }
+            if (!gone.isEmpty()) {
+                deleteClips(gone);
+            }
+            luceneDirectory.refresh();
+            log.info("Full import wrote {} new or changed clips, skipped {} unchanged clips, and deleted {} clips",
+                written, unchanged, gone.size());
+            fingerprints = imported.build();
+            saveFingerprints();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (null != rebuild) {
+                rebuild.close();
+            }
+        }
+    }
+
+    /**
+     * With partitioning, clips are only deleted from the partitions containing them. Partitions that only contain
+     * deleted clips are dropped as a whole.
+     */
+    private void deleteClips(List<Term> gone) throws IOException {
+        if (!luceneDirectory.isPartitioned()) {
+            luceneDirectory.performUpdate("ClipRepository.deleteClips", writer -> deleteInChunks(writer, gone));
+            return;
+        }
+        // the partitions are counted by searches, which must see the clips the import just wrote into them
+        luceneDirectory.refresh();
+        val query = new TermInSetQuery(ClipField.ID.term(), gone.stream().map(Term::bytes).toList());
+        for (val partition : luceneDirectory.partitions()) {
+            int goneFromPartition = luceneDirectory.performSearch("ClipRepository.deleteClips", List.of(partition),
+                searcher -> searcher.count(query));
+            if (0 == goneFromPartition) {
+                continue;
+            }
+            if (goneFromPartition == luceneDirectory.performSearch("ClipRepository.deleteClips", List.of(partition),
+                searcher -> searcher.getIndexReader().numDocs())) {
+                luceneDirectory.dropPartition(partition);
+            } else {
+                luceneDirectory.performUpdate("ClipRepository.deleteClips", partition, writer -> deleteInChunks(writer, gone));
+            }
+        }
+    }
+
+    private static void deleteInChunks(IndexWriter writer, List<Term> terms) throws IOException {
+        for (int from = 0; from < terms.size(); from += MAX_DELETES_PER_CALL) {
+            writer.deleteDocuments(terms.subList(from, Math.min(terms.size(), from + MAX_DELETES_PER_CALL)).toArray(Term[]::new));
+        }
+    }
+
+    private ClipFingerprints currentFingerprints() {
+        if (null == fingerprints) {
+            fingerprints = luceneDirectory.siblingFile(FINGERPRINTS_FILE_SUFFIX)
+                .filter(Files::exists)
+                .flatMap(this::readFingerprintsFile)
+                .orElseGet(this::readFingerprintsFromIndex);
+        }
+        return fingerprints;
+    }
+
+    private Optional<ClipFingerprints> readFingerprintsFile(Path file) {
         try {
-            luceneDirectory.performUpdate(new StandardAnalyzer(), writer ->
-                writer.deleteDocuments(
-                    new BooleanQuery.Builder()
-                        .add(luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP), BooleanClause.Occur.MUST)
-                        .add(NumericDocValuesField.newSlowRangeQuery(
-                            ClipField.IMPORTEDAT.sorted(), Long.MIN_VALUE, startedAt.toEpochSecond() - 1), BooleanClause.Occur.MUST)
-                        .build()));
+            val read = ClipFingerprints.readFrom(file);
+            log.debug("Read {} clip fingerprints from {}", read.size(), file);
+            return Optional.of(read);
         } catch (final IOException e) {
-            throw new RuntimeException("Could not create index writer", e);
+            log.warn("Could not read clip fingerprints from {}, reading them from the index instead", file, e);
+            return Optional.empty();
         }
     }
 
-    @SneakyThrows(IOException.class)
-    public synchronized void addClips(Iterable<ClipEntry> clipEntries, ZonedDateTime importedAt) {
-        log.debug("Adding ClipEntries");
-        luceneDirectory.performUpdate(new StandardAnalyzer(), writer -> {
-            for (val e : clipEntries) {
-                log.debug("Updating document with id '{}': '{}'", e.getId(), e.getTitle());
-                val documentId = e.getId();
-                val document = luceneDirectory.buildDocument(DOCTYPE_CLIP, SCHEMA_VERSION)
-                    .addField(ClipField.ID, documentId)
-                    .addField(ClipField.CHANNELNAME, e.getChannelName())
-                    .addField(ClipField.CONTAINEDIN, e.getContainedIn())
-                    .addField(ClipField.DURATION, e.getDuration())
-                    .addField(ClipField.TITLE, e.getTitle())
-                    .addField(ClipField.URL, e.getUrl())
-                    .addField(ClipField.URL_HD, e.getUrlHd())
-                    .addField(ClipField.SIZE, e.getSize())
-                    .addField(ClipField.BROADCASTEDAT, e.getBroadcastedAt())
-                    .addField(ClipField.IMPORTEDAT, importedAt)
-                    .build();
-                writer.updateDocument(
-                    new Term(ClipField.ID.term(), ClipField.ID.term(documentId)),
-                    document);
+    /**
+     * Clips indexed before fingerprints existed get fingerprint 0, so the next full import rewrites them.
+     */
+    private ClipFingerprints readFingerprintsFromIndex() {
+        log.info("Reading clip fingerprints from the index");
+        return luceneDirectory.performSearch("ClipRepository.readFingerprintsFromIndex", searcher -> searcher.search(
+            luceneDirectory.createDoctypeQuery(DOCTYPE_CLIP),
+            new CollectorManager<FingerprintCollector, ClipFingerprints>() {
+                @Override
+                public FingerprintCollector newCollector() {
+                    return new FingerprintCollector();
+                }
+
+                @Override
+                public ClipFingerprints reduce(Collection<FingerprintCollector> collectors) {
+                    val all = new ClipFingerprints.Builder(collectors.stream().mapToInt(c -> c.fingerprints.size()).sum());
+                    collectors.forEach(c -> all.addAll(c.fingerprints));
+                    return all.build();
+                }
+            }));
+    }
+
+    private static class FingerprintCollector extends SimpleCollector {
+        private final ClipFingerprints.Builder fingerprints = new ClipFingerprints.Builder(0);
+        private NumericDocValues ids;
+        private NumericDocValues docValues;
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            ids = DocValues.getNumeric(context.reader(), ClipField.ID.sorted());
+            docValues = DocValues.getNumeric(context.reader(), ClipField.FINGERPRINT.sorted());
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (ids.advanceExact(doc)) {
+                fingerprints.add(ids.longValue(), docValues.advanceExact(doc) ? docValues.longValue() : 0);
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+
+    private void deleteFingerprintsFile() {
+        luceneDirectory.siblingFile(FINGERPRINTS_FILE_SUFFIX).ifPresent(file -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Could not delete outdated clip fingerprints at " + file, e);
             }
         });
     }
@@ -28,15 +28,14 @@ import de.corelogics.mediaview.client.mediathekview.ClipEntry;
 import de.corelogics.mediaview.service.base.lucene.LuceneDirectory;
 import de.corelogics.mediaview.service.base.lucene.RepoTypeFields;
 import de.corelogics.mediaview.service.base.threading.BaseThreading;
+import de.corelogics.mediaview.util.HashingUtils;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
 import org.apache.logging.log4j.CloseableThreadContext;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
@@ -72,7 +71,7 @@ public class TrackedViewRepository {
     }
 
     private static final String DOCTYPE_TRACKEDVIEW = "tracked-view";
-    private static final long SCHEMA_VERSION = 1;
+    private static final long SCHEMA_VERSION = 3;
 
     private final ScheduledExecutorService scheduledExecutorService = newSingleThreadScheduledExecutor(
         Thread.ofVirtual().name("trackedview-", 0L).factory());
@@ -84,9 +83,42 @@ public class TrackedViewRepository {
     public TrackedViewRepository(LuceneDirectory luceneDirectory, BaseThreading baseThreading) {
         this.luceneDirectory = luceneDirectory;
         this.baseThreading = baseThreading;
+        migrateSchema();
         scheduleCleanup();
     }
 
+    /**
+     * Tracked views can't be imported again, so the ones of an older schema are written again with the current one.
+     * Older schemas stored the values under the fields' plain names.
+     */
+    private void migrateSchema() {
+        val outdated = luceneDirectory.createOutdatedQuery(DOCTYPE_TRACKEDVIEW, SCHEMA_VERSION);
+        List<Document> documents = luceneDirectory.performSearch("TrackedViewRepository.migrateSchema", searcher -> {
+            val result = searcher.search(outdated, Math.max(1, searcher.count(outdated)));
+            return Arrays.stream(result.scoreDocs)
+                .map(doc -> luceneDirectory.loadDocument(searcher, doc.doc))
+                .toList();
+        });
+        if (documents.isEmpty()) {
+            return;
+        }
+        log.info("For schema migration, rewriting {} tracked views", documents.size());
+        try {
+            luceneDirectory.performUpdate("TrackedViewRepository.migrateSchema", writer -> {
+                for (val document : documents) {
+                    val trackedViewId = document.get(TrackedViewField.ID.value());
+                    writer.updateDocument(
+                        new Term(TrackedViewField.ID.term(), TrackedViewField.ID.term(trackedViewId)),
+                        buildTrackedView(trackedViewId, trackedViewFromDocument(document, TrackedViewField::value)));
+                }
+            });
+            luceneDirectory.refresh();
+            luceneDirectory.commit();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not perform tracked view schema migration.", e);
+        }
+    }
+
     public void scheduleCleanup() {
         log.debug("Scheduling cleanup of Tracked Views every day, starting at {} (10 minutes from now)", ZonedDateTime.now().plusMinutes(10));
         baseThreading.schedulePeriodic(this::cleanupOldTrackedViews, Duration.ofMinutes(10), Duration.ofDays(1));
@@ -97,12 +129,12 @@ public class TrackedViewRepository {
         try (val ignored = CloseableThreadContext.put("CLEANUP_STARTED_AT", startedAt.toLocalDateTime().toString())) {
             val oldestDateToKeep = startedAt.minusDays(30).truncatedTo(ChronoUnit.DAYS);
             log.info("Cleaning tracked views older than {} (30 days)", oldestDateToKeep);
-            luceneDirectory.performUpdate(new StandardAnalyzer(), writer ->
+            luceneDirectory.performUpdate("TrackedViewRepository.cleanupOldTrackedViews", writer ->
                 writer.deleteDocuments(new BooleanQuery.Builder()
                     .add(luceneDirectory.createDoctypeQuery(DOCTYPE_TRACKEDVIEW), BooleanClause.Occur.MUST)
                     .add(
-                        NumericDocValuesField.newSlowRangeQuery(
-                            TrackedViewField.LAST_VIEWED_AT.sorted(),
+                        luceneDirectory.createTimeRangeQuery(
+                            TrackedViewField.LAST_VIEWED_AT,
                             Long.MIN_VALUE,
                             oldestDateToKeep.toEpochSecond()),
                         BooleanClause.Occur.MUST)
@@ -115,28 +147,39 @@ public class TrackedViewRepository {
     @SneakyThrows(IOException.class)
     public void addTrackedView(ClipEntry forClip, ZonedDateTime atTime) {
         log.debug("Adding TrackedView for {} at {}", forClip, atTime);
-        val trackedViewId = forClip.getId() + "@" + atTime.truncatedTo(ChronoUnit.DAYS);
-        val document = luceneDirectory.buildDocument(DOCTYPE_TRACKEDVIEW, SCHEMA_VERSION)
-            .addField(TrackedViewField.ID, trackedViewId)
-            .addField(TrackedViewField.CHANNELNAME, forClip.getChannelName())
-            .addField(TrackedViewField.CLIP_ID, forClip.getId())
-            .addField(TrackedViewField.CONTAINEDIN, forClip.getContainedIn())
-            .addField(TrackedViewField.TITLE, forClip.getTitle())
-            .addField(TrackedViewField.LAST_VIEWED_AT, atTime)
-            .build();
-        luceneDirectory.performUpdate(new StandardAnalyzer(), writer ->
+        // in the text form clip ids had before, so that views tracked before are counted with later ones
+        val clipId = HashingUtils.idString(forClip.getId());
+        val trackedViewId = clipId + "@" + atTime.truncatedTo(ChronoUnit.DAYS);
+        val document = buildTrackedView(trackedViewId, new TrackedViewEntry(
+            clipId,
+            forClip.getChannelName(),
+            forClip.getContainedIn(),
+            forClip.getTitle(),
+            atTime));
+        luceneDirectory.performUpdate("TrackedViewRepository.addTrackedView", writer ->
             writer.updateDocument(
                 new Term(TrackedViewField.ID.term(), TrackedViewField.ID.term(trackedViewId)),
                 document));
     }
 
+    private Document buildTrackedView(String trackedViewId, TrackedViewEntry entry) {
+        return luceneDirectory.buildDocument(DOCTYPE_TRACKEDVIEW, SCHEMA_VERSION)
+            .addField(TrackedViewField.ID, trackedViewId)
+            .addField(TrackedViewField.CHANNELNAME, entry.channelName())
+            .addField(TrackedViewField.CLIP_ID, entry.clipId())
+            .addField(TrackedViewField.CONTAINEDIN, entry.containedIn())
+            .addField(TrackedViewField.TITLE, entry.title())
+            .addField(TrackedViewField.LAST_VIEWED_AT, entry.lastViewedAt())
+            .build();
+    }
+
     public List<TrackedContainedIn> getRecentlySeenContainedIns(ZonedDateTime earliest, ZonedDateTime latest) {
         log.debug("Getting all Tracked Views between {} and {}", earliest, latest);
-        return luceneDirectory.performSearch(searcher -> {
+        return luceneDirectory.performSearch("TrackedViewRepository.getRecentlySeenContainedIns", searcher -> {
             val result = searcher.search(
                 new BooleanQuery.Builder()
                     .add(luceneDirectory.createDoctypeQuery(DOCTYPE_TRACKEDVIEW), BooleanClause.Occur.MUST)
-                    .add(NumericDocValuesField.newSlowRangeQuery(TrackedViewField.LAST_VIEWED_AT.sorted(), earliest.toEpochSecond(), latest.toEpochSecond()), BooleanClause.Occur.MUST)
+                    .add(luceneDirectory.createTimeRangeQuery(TrackedViewField.LAST_VIEWED_AT, earliest.toEpochSecond(), latest.toEpochSecond()), BooleanClause.Occur.MUST)
                     .build(),
                 1000);
             return Arrays.stream(result.scoreDocs)
@@ -162,11 +205,15 @@ public class TrackedViewRepository {
     }
 
     private TrackedViewEntry trackedViewFromDocument(Document document) {
+        return trackedViewFromDocument(document, TrackedViewField::stored);
+    }
+
+    private TrackedViewEntry trackedViewFromDocument(Document document, Function<TrackedViewField, String> storedName) {
         return new TrackedViewEntry(
-            document.get(TrackedViewField.CLIP_ID.value()),
-            document.get(TrackedViewField.CHANNELNAME.value()),
-            document.get(TrackedViewField.CONTAINEDIN.value()),
-            document.get(TrackedViewField.TITLE.value()),
-            ZonedDateTime.parse(document.get(TrackedViewField.LAST_VIEWED_AT.value())));
+            document.get(storedName.apply(TrackedViewField.CLIP_ID)),
+            document.get(storedName.apply(TrackedViewField.CHANNELNAME)),
+            document.get(storedName.apply(TrackedViewField.CONTAINEDIN)),
+            document.get(storedName.apply(TrackedViewField.TITLE)),
+            ZonedDateTime.parse(document.get(storedName.apply(TrackedViewField.LAST_VIEWED_AT))));
     }
 }
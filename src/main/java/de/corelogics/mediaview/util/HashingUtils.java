@@ -43,15 +43,50 @@ public class HashingUtils {
         .putLong(0x0706050403020100L)
         .putLong(0x0f0e0d0c0b0a0908L)
         .array();
+    private static final byte[] SEPARATOR = {0};
 
-    public static String idHash(String... idStrings) {
+    public static long idHash(String... idStrings) {
         val hasher = SipHash.init(SIP42_KEY_BYTES, 2, 4);
         Arrays.stream(idStrings)
             .map(s -> s.getBytes(StandardCharsets.UTF_8))
             .forEach(hasher::update);
+        return hasher.digest();
+    }
+
+    /**
+     * @return the text form ids had before they were kept as numbers
+     */
+    public static String idString(long value) {
         final var b = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
-        b.putLong(hasher.digest());
+        b.putLong(value);
         b.rewind();
         return Base64.getEncoder().withoutPadding().encodeToString(b.array());
     }
+
+    /**
+     * @return the 64 bit value of an id created by {@link #idString(long)}
+     * @throws IllegalArgumentException if the id wasn't created that way
+     */
+    public static long idHashValue(String idHash) {
+        val bytes = Base64.getDecoder().decode(idHash);
+        if (bytes.length != 8) {
+            throw new IllegalArgumentException("Not an id hash: " + idHash);
+        }
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getLong();
+    }
+
+    /**
+     * Unlike {@link #idHash(String...)}, the strings are separated before hashing, so that moving characters from one
+     * string to the next changes the hash. Null strings hash like empty ones.
+     */
+    public static long hash(String... strings) {
+        val hasher = SipHash.init(SIP42_KEY_BYTES, 2, 4);
+        for (val s : strings) {
+            if (null != s) {
+                hasher.update(s.getBytes(StandardCharsets.UTF_8));
+            }
+            hasher.update(SEPARATOR);
+        }
+        return hasher.digest();
+    }
 }
@@ -43,6 +43,11 @@ public class HttpUtils {
     public static final String HEADER_ACCEPT_RANGES = "Accept-Ranges";
     public static final String HEADER_CONTENT_LENGTH = "Content-Length";
     public static final String HEADER_CONTENT_RANGE = "Content-Range";
+    public static final String HEADER_ETAG = "ETag";
+    public static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    public static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String HEADER_IF_RANGE = "If-Range";
 
     public static Request.Builder enhanceRequest(MainConfiguration mainConfiguration, Request.Builder request) {
         addHeaders(mainConfiguration, request::header);
@@ -28,11 +28,14 @@ import lombok.experimental.UtilityClass;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.HexFormat;
 
 @UtilityClass
 public class IdUtils {
     private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
     private static final Base64.Decoder DECODER = Base64.getDecoder();
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int CLIP_ID_LENGTH = 16;
 
     public static String encodeId(String data) {
         return ENCODER.encodeToString(data.getBytes(StandardCharsets.UTF_8));
@@ -41,4 +44,21 @@ public class IdUtils {
     public static String decodeId(String base64) {
         return new String(DECODER.decode(base64), StandardCharsets.UTF_8);
     }
+
+    public static String encodeClipId(long clipId) {
+        return HEX.toHexDigits(clipId);
+    }
+
+    /**
+     * Also reads clip ids of links created before clip ids were numbers, which are encoded with
+     * {@link #encodeId(String)}.
+     *
+     * @throws IllegalArgumentException if it's no clip id
+     */
+    public static long decodeClipId(String encoded) {
+        if (encoded.length() == CLIP_ID_LENGTH) {
+            return HexFormat.fromHexDigitsToLong(encoded);
+        }
+        return HashingUtils.idHashValue(decodeId(encoded));
+    }
 }
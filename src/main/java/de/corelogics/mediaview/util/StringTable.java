@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.util;
+
+import lombok.val;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances for strings that repeat across many objects, like channel and show names. The table stops
+ * growing at its maximum size; unknown values are then returned as they are. Thread safe.
+ */
+public class StringTable {
+    private final int maxSize;
+    private final ConcurrentHashMap<String, String> table = new ConcurrentHashMap<>();
+
+    public StringTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public String canonicalize(String value) {
+        if (null == value) {
+            return null;
+        }
+        val canonical = table.get(value);
+        if (null != canonical) {
+            return canonical;
+        }
+        if (table.size() >= maxSize) {
+            return value;
+        }
+        val previous = table.putIfAbsent(value, value);
+        return null == previous ? value : previous;
+    }
+
+    public int size() {
+        return table.size();
+    }
+}
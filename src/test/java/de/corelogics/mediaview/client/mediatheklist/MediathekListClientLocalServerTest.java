@@ -0,0 +1,269 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediatheklist;
+
+import com.sun.net.httpserver.HttpServer;
+import de.corelogics.mediaview.client.mediatheklist.model.ListVersion;
+import de.corelogics.mediaview.client.mediathekview.ClipEntry;
+import de.corelogics.mediaview.client.mediathekview.MediathekViewImporter;
+import de.corelogics.mediaview.config.MainConfiguration;
+import de.corelogics.mediaview.service.base.lifecycle.ShutdownRegistry;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the client against fixture lists, served by a local HTTP server standing in for the MediathekView servers.
+ */
+@ExtendWith(MockitoExtension.class)
+class MediathekListClientLocalServerTest {
+    @Mock
+    private MainConfiguration mainConfiguration;
+
+    @Mock
+    private ShutdownRegistry shutdownRegistry;
+
+    private HttpServer server;
+    private String baseUrl;
+    private MediathekListClient sut;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+        server.start();
+        when(mainConfiguration.mediathekViewListBaseUrl()).thenReturn(baseUrl);
+        sut = new MediathekListClient(mainConfiguration, shutdownRegistry, HttpClient.newHttpClient());
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void whenOpeningDiffList_thenDiffFixtureIsImported() throws IOException {
+        serve("/diff.xml", serverListPointingTo("/Filmliste-diff.xz"));
+        serve("/Filmliste-diff.xz", xz("/liste-diff.example.json"));
+
+        var entries = new MediathekViewImporter().createList(sut.openMediathekListeDiff()).getStream().toList();
+
+        assertThat(entries).containsExactly(
+            new ClipEntry(
+                "channel-name",
+                "show-title",
+                ZonedDateTime.of(2000, 1, 3, 11, 0, 0, 0, ZoneId.of("Europe/Berlin")),
+                "new-clip-title-1",
+                "00:15:00",
+                150L * 1024 * 1024,
+                "https://somewhere.test/new-1/content-base",
+                "https://somewhere.test/new-1/content-hd"),
+            new ClipEntry(
+                "channel-name",
+                "other-show-title",
+                ZonedDateTime.of(2000, 1, 3, 11, 30, 0, 0, ZoneId.of("Europe/Berlin")),
+                "new-clip-title-2",
+                "00:45:00",
+                450L * 1024 * 1024,
+                "https://somewhere.test/new-2/content-base",
+                ""));
+    }
+
+    @Test
+    void whenOpeningFullList_thenFullListServersAreUsed() throws IOException {
+        serve("/akt.xml", serverListPointingTo("/Filmliste-akt.xz"));
+        serve("/diff.xml", serverListPointingTo("/Filmliste-diff.xz"));
+        serve("/Filmliste-akt.xz", xz("/liste.example.json"));
+        serve("/Filmliste-diff.xz", xz("/liste-diff.example.json"));
+
+        try (var download = sut.openMediathekListeFull(ListVersion.UNKNOWN).orElseThrow()) {
+            var entries = new MediathekViewImporter().createList(download.getInput()).getStream().toList();
+
+            assertThat(entries).extracting(ClipEntry::getTitle).containsExactly("clip-title-1", "clip-title-2", "clip-title-3");
+        }
+    }
+
+    @Test
+    void givenListIsUnchangedSinceKnownVersion_thenNothingIsDownloaded() throws IOException {
+        var etag = "\"list-1\"";
+        var content = xz("/liste.example.json");
+        serve("/akt.xml", serverListPointingTo("/Filmliste-akt.xz"));
+        server.createContext("/Filmliste-akt.xz", exchange -> {
+            exchange.getResponseHeaders().add("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, content.length);
+            try (var body = exchange.getResponseBody()) {
+                body.write(content);
+            }
+        });
+
+        ListVersion version;
+        try (var download = sut.openMediathekListeFull(ListVersion.UNKNOWN).orElseThrow()) {
+            version = download.getVersion();
+        }
+
+        assertThat(version.etag()).isEqualTo(etag);
+        assertThat(sut.openMediathekListeFull(version)).isEmpty();
+    }
+
+    @Test
+    void givenMirrorsServeRanges_thenListIsAssembledFromSegments() throws IOException {
+        var content = xz("/liste.example.json");
+        var requestedRanges = new CopyOnWriteArrayList<String>();
+        when(mainConfiguration.importListMirrors()).thenReturn(2);
+        serve("/akt.xml", serverListPointingTo("/mirror-1/Filmliste-akt.xz", "/mirror-2/Filmliste-akt.xz"));
+        serveRanges("/mirror-1/Filmliste-akt.xz", content, requestedRanges, -1);
+        serveRanges("/mirror-2/Filmliste-akt.xz", content, requestedRanges, -1);
+        var segmented = new MediathekListClient(mainConfiguration, shutdownRegistry, HttpClient.newHttpClient(), 64);
+
+        try (var download = segmented.openMediathekListeFull(ListVersion.UNKNOWN).orElseThrow()) {
+            var entries = new MediathekViewImporter().createList(download.getInput()).getStream().toList();
+
+            assertThat(entries).extracting(ClipEntry::getTitle).containsExactly("clip-title-1", "clip-title-2", "clip-title-3");
+        }
+        assertThat(requestedRanges)
+            .hasSizeGreaterThan(content.length / 64)
+            .allSatisfy(range -> assertThat(range).startsWith("bytes="));
+    }
+
+    @Test
+    void givenConnectionDrops_thenDownloadResumesFromLastReceivedByte() throws IOException {
+        var content = xz("/liste.example.json");
+        var requestedRanges = new CopyOnWriteArrayList<String>();
+        serve("/akt.xml", serverListPointingTo("/Filmliste-akt.xz"));
+        serveRanges("/Filmliste-akt.xz", content, requestedRanges, 128);
+        var segmented = new MediathekListClient(mainConfiguration, shutdownRegistry, HttpClient.newHttpClient(), 64);
+
+        try (var download = segmented.openMediathekListeFull(ListVersion.UNKNOWN).orElseThrow()) {
+            var entries = new MediathekViewImporter().createList(download.getInput()).getStream().toList();
+
+            assertThat(entries).extracting(ClipEntry::getTitle).containsExactly("clip-title-1", "clip-title-2", "clip-title-3");
+        }
+        assertThat(requestedRanges).contains("bytes=128-191", "bytes=160-191");
+    }
+
+    @Test
+    void givenDiffListIsMissing_thenExceptionIsThrown() {
+        serve("/diff.xml", serverListPointingTo("/Filmliste-diff.xz"));
+
+        assertThatExceptionOfType(IOException.class).isThrownBy(sut::openMediathekListeDiff);
+    }
+
+    private void serve(String path, byte[] content) {
+        server.createContext(path, exchange -> {
+            exchange.sendResponseHeaders(200, content.length);
+            try (var body = exchange.getResponseBody()) {
+                body.write(content);
+            }
+        });
+    }
+
+    /**
+     * Serves byte ranges of the content. The response to the range starting at {@code dropAt} breaks off after half of
+     * its bytes, once.
+     */
+    private void serveRanges(String path, byte[] content, List<String> requestedRanges, int dropAt) {
+        var dropped = new AtomicBoolean();
+        server.createContext(path, exchange -> {
+            var range = exchange.getRequestHeaders().getFirst("Range");
+            requestedRanges.add(range);
+            var matcher = Pattern.compile("bytes=(\\d+)-(\\d+)").matcher(null == range ? "" : range);
+            if (!matcher.matches()) {
+                exchange.sendResponseHeaders(200, content.length);
+                try (var body = exchange.getResponseBody()) {
+                    body.write(content);
+                }
+                return;
+            }
+            var first = Integer.parseInt(matcher.group(1));
+            var last = Math.min(Integer.parseInt(matcher.group(2)), content.length - 1);
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + first + "-" + last + "/" + content.length);
+            exchange.getResponseHeaders().add("Last-Modified", "Sun, 02 Jan 2000 00:00:00 GMT");
+            exchange.sendResponseHeaders(206, last - first + 1);
+            if (first == dropAt && !dropped.getAndSet(true)) {
+                try (var body = exchange.getResponseBody()) {
+                    body.write(content, first, (last - first + 1) / 2);
+                    body.flush();
+                } catch (final IOException e) {
+                    // closing with missing bytes drops the connection, which is what this is about
+                }
+                return;
+            }
+            try (var body = exchange.getResponseBody()) {
+                body.write(content, first, last - first + 1);
+            }
+        });
+    }
+
+    private byte[] serverListPointingTo(String... paths) {
+        var servers = new StringBuilder();
+        for (var path : paths) {
+            servers.append("    <Server>\n")
+                .append("        <URL>").append(baseUrl).append(path).append("</URL>\n")
+                .append("        <Prio>1</Prio>\n")
+                .append("    </Server>\n");
+        }
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<Mediathek>\n" +
+            servers +
+            "</Mediathek>\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] xz(String resource) throws IOException {
+        var byteOut = new ByteArrayOutputStream();
+        try (var in = MediathekListClientLocalServerTest.class.getResourceAsStream(resource);
+             var out = new XZOutputStream(byteOut, new LZMA2Options(LZMA2Options.PRESET_MIN))) {
+            IOUtils.copy(in, out);
+        }
+        return byteOut.toByteArray();
+    }
+}
@@ -24,6 +24,7 @@
 
 package de.corelogics.mediaview.client.mediatheklist;
 
+import de.corelogics.mediaview.client.mediatheklist.model.ListVersion;
 import de.corelogics.mediaview.config.MainConfiguration;
 import de.corelogics.mediaview.service.base.lifecycle.ShutdownRegistry;
 import org.apache.commons.io.IOUtils;
@@ -32,7 +33,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.tukaani.xz.LZMA2Options;
@@ -44,9 +44,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -61,7 +64,6 @@ class MediathekListClientTest {
     private static final String URI_CONTENT_SECOND = "https://second.server.test/liste.xz";
     private static final String TEST_META_URI = "http://nowhere.test/akt.xml";
 
-    @InjectMocks
     private MediathekListClient sut;
 
     @Mock
@@ -76,6 +78,7 @@ class MediathekListClientTest {
     @BeforeEach
     void setupMetaUriInConfig() {
         when(mainConfiguration.mediathekViewListBaseUrl()).thenReturn(TEST_META_URI);
+        sut = new MediathekListClient(mainConfiguration, shutdownRegistry, httpClient);
     }
 
     @AfterEach
@@ -95,7 +98,7 @@ class MediathekListClientTest {
 
         // test
 
-        assertThat(IOUtils.toString(sut.openMediathekListeFull(), StandardCharsets.UTF_8))
+        assertThat(IOUtils.toString(openFullList(), StandardCharsets.UTF_8))
                 .isEqualTo(SOME_CONTENT_STRING);
 
         // verify
@@ -134,7 +137,7 @@ class MediathekListClientTest {
 
         // test
 
-        assertThat(IOUtils.toString(sut.openMediathekListeFull(), StandardCharsets.UTF_8))
+        assertThat(IOUtils.toString(openFullList(), StandardCharsets.UTF_8))
                 .isEqualTo(SOME_CONTENT_STRING);
         // verify
 
@@ -153,6 +156,23 @@ class MediathekListClientTest {
 
     }
 
+    @Test
+    void givenStreamingEnabled_thenContentIsDecompressedWhileReading() throws IOException, InterruptedException {
+        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        when(mainConfiguration.isFullListStreamingEnabled()).thenReturn(true);
+        when(httpClient.send(any(), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(mockResponse);
+        when(httpClient.send(any(), eq(HttpResponse.BodyHandlers.ofInputStream())))
+                .thenAnswer(i -> createListeInputStream());
+        when(mockResponse.body()).thenReturn(mvMetadataTwoServers());
+
+        try (var input = openFullList()) {
+            assertThat(IOUtils.toString(input, StandardCharsets.UTF_8)).isEqualTo(SOME_CONTENT_STRING);
+        }
+
+        verify(httpClient, times(2)).send(any(), any());
+    }
+
     @Test
     void givenNoServer_thenThrowException() throws IOException, InterruptedException {
         HttpResponse<String> mockResponse = mock(HttpResponse.class);
@@ -161,15 +181,33 @@ class MediathekListClientTest {
         when(mockResponse.body()).thenReturn(mvMetadataNoServer());
 
         assertThatExceptionOfType(IOException.class)
-                .isThrownBy(sut::openMediathekListeFull)
+                .isThrownBy(this::openFullList)
                 .withMessageContaining("Could not open");
     }
 
+    @Test
+    void givenMirrorUrlIsMalformed_thenNextMirrorIsUsed() throws IOException, InterruptedException {
+        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        when(httpClient.send(any(), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(mockResponse);
+        when(httpClient.send(any(), eq(HttpResponse.BodyHandlers.ofInputStream())))
+                .thenAnswer(i -> createListeInputStream());
+        when(mockResponse.body()).thenReturn(mvMetadataMalformedFirstServer());
+
+        assertThat(IOUtils.toString(openFullList(), StandardCharsets.UTF_8))
+                .isEqualTo(SOME_CONTENT_STRING);
+
+        var requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(2)).send(requestCaptor.capture(), any());
+        assertThat(requestCaptor.getAllValues()).extracting(HttpRequest::uri)
+                .containsExactly(URI.create(TEST_META_URI), URI.create(URI_CONTENT_SECOND));
+    }
+
     @Test
     void givenMetaDataInterrupted_thenThrowException() throws IOException, InterruptedException {
         when(httpClient.send(any(), any())).thenThrow(InterruptedException.class);
         assertThatExceptionOfType(IOException.class)
-                .isThrownBy(sut::openMediathekListeFull);
+                .isThrownBy(this::openFullList);
     }
 
     @Test
@@ -182,12 +220,61 @@ class MediathekListClientTest {
                 .thenThrow(InterruptedException.class);
 
         assertThatExceptionOfType(IOException.class)
-                .isThrownBy(sut::openMediathekListeFull);
+                .isThrownBy(this::openFullList);
+    }
+
+    @Test
+    void givenKnownVersion_thenConditionalRequestIsSentAndVersionIsReturned() throws IOException, InterruptedException {
+        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        when(httpClient.send(any(), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(mockResponse);
+        when(mockResponse.body()).thenReturn(mvMetadataTwoServers());
+        HttpResponse<InputStream> contentResponse = mock(HttpResponse.class);
+        when(contentResponse.statusCode()).thenReturn(200);
+        when(contentResponse.body()).thenReturn(new ByteArrayInputStream(listeContentBytes()));
+        when(contentResponse.headers()).thenReturn(HttpHeaders.of(
+                Map.of("ETag", List.of("\"new-etag\""), "Last-Modified", List.of("Sun, 02 Jan 2000 00:00:00 GMT")),
+                (name, value) -> true));
+        when(httpClient.send(any(), eq(HttpResponse.BodyHandlers.ofInputStream())))
+                .thenReturn(contentResponse);
+
+        try (var download = sut.openMediathekListeFull(
+                new ListVersion("\"old-etag\"", "Sat, 01 Jan 2000 00:00:00 GMT", "hash")).orElseThrow()) {
+            assertThat(IOUtils.toString(download.getInput(), StandardCharsets.UTF_8)).isEqualTo(SOME_CONTENT_STRING);
+            assertThat(download.getVersion())
+                    .isEqualTo(new ListVersion("\"new-etag\"", "Sun, 02 Jan 2000 00:00:00 GMT", null));
+        }
+
+        var requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).send(requestCaptor.capture(), eq(HttpResponse.BodyHandlers.ofInputStream()));
+        assertThat(requestCaptor.getValue().headers().firstValue("If-None-Match")).contains("\"old-etag\"");
+        assertThat(requestCaptor.getValue().headers().firstValue("If-Modified-Since")).contains("Sat, 01 Jan 2000 00:00:00 GMT");
+    }
+
+    @Test
+    void givenServerReportsNotModified_thenNoListIsReturned() throws IOException, InterruptedException {
+        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        when(httpClient.send(any(), eq(HttpResponse.BodyHandlers.ofString())))
+                .thenReturn(mockResponse);
+        when(mockResponse.body()).thenReturn(mvMetadataTwoServers());
+        HttpResponse<InputStream> notModifiedResponse = mock(HttpResponse.class);
+        when(notModifiedResponse.statusCode()).thenReturn(304);
+        when(httpClient.send(any(), eq(HttpResponse.BodyHandlers.ofInputStream())))
+                .thenReturn(notModifiedResponse);
+
+        assertThat(sut.openMediathekListeFull(new ListVersion("\"etag\"", null, null))).isEmpty();
+
+        verify(httpClient, times(2)).send(any(), any());
+    }
+
+    private InputStream openFullList() throws IOException {
+        return sut.openMediathekListeFull(ListVersion.UNKNOWN).orElseThrow().getInput();
     }
 
     private HttpResponse<InputStream> createListeInputStream() throws IOException {
         HttpResponse<InputStream> resp = mock(HttpResponse.class);
         when(resp.statusCode()).thenReturn(200);
+        when(resp.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
         when(resp.body()).thenReturn(new ByteArrayInputStream(listeContentBytes()));
         return resp;
     }
@@ -214,6 +301,20 @@ class MediathekListClientTest {
                 "</Mediathek>\n";
     }
 
+    private String mvMetadataMalformedFirstServer() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<Mediathek>\n" +
+                "    <Server>\n" +
+                "        <URL>" + URI_CONTENT_SECOND + "</URL>\n" +
+                "        <Prio>2</Prio>\n" +
+                "    </Server>\n" +
+                "    <Server>\n" +
+                "        <URL>https://first server.test/liste.xz</URL>\n" +
+                "        <Prio>1</Prio>\n" +
+                "    </Server>\n" +
+                "</Mediathek>\n";
+    }
+
     private String mvMetadataNoServer() {
         return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
                 "<Mediathek>\n" +
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.corelogics.mediaview.client.mediatheklist;
+
+import de.corelogics.mediaview.client.mediatheklist.model.MediathekListeServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MirrorStatisticsTest {
+    private static final MediathekListeServer SLOW = new MediathekListeServer("https://slow.test/liste.xz", 1);
+    private static final MediathekListeServer FAST = new MediathekListeServer("https://fast.test/liste.xz", 2);
+    private static final MediathekListeServer UNKNOWN = new MediathekListeServer("https://unknown.test/liste.xz", 3);
+
+    private final MirrorStatistics sut = new MirrorStatistics();
+
+    @Test
+    void givenNoHistory_thenOrderIsKept() {
+        assertThat(sut.rank(List.of(SLOW, FAST, UNKNOWN))).containsExactly(SLOW, FAST, UNKNOWN);
+    }
+
+    @Test
+    void givenThroughputs_thenFastestComesFirstAndUnmeasuredBeforeAll() {
+        sut.recordTransfer(SLOW.getUrl(), 1_000, 1_000_000_000L);
+        sut.recordTransfer(FAST.getUrl(), 1_000_000, 1_000_000_000L);
+
+        assertThat(sut.rank(List.of(SLOW, FAST, UNKNOWN))).containsExactly(UNKNOWN, FAST, SLOW);
+    }
+
+    @Test
+    void givenFailures_thenMirrorFallsBehind() {
+        sut.recordTransfer(SLOW.getUrl(), 1_000, 1_000_000_000L);
+        sut.recordTransfer(FAST.getUrl(), 1_000_000, 1_000_000_000L);
+        for (int i = 0; i < 10; i++) {
+            sut.recordFailure(FAST.getUrl());
+        }
+
+        assertThat(sut.rank(List.of(SLOW, FAST))).containsExactly(SLOW, FAST);
+    }
+
+    @Test
+    void givenDiffAndFullListOnSameHost_thenHistoryIsShared() {
+        sut.recordTransfer("https://fast.test/diff.xz", 1_000_000, 1_000_000_000L);
+        sut.recordTransfer(SLOW.getUrl(), 1_000, 1_000_000_000L);
+
+        assertThat(sut.rank(List.of(SLOW, FAST))).containsExactly(FAST, SLOW);
+    }
+}
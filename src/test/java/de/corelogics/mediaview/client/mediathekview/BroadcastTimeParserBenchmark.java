@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediathekview;
+
+import lombok.val;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+/**
+ * Compares {@link BroadcastTimeParser} with parsing by {@link DateTimeFormatter}, on generated entries spread over
+ * about as many dates as a full list contains. Not run by the build; run its {@code main} from the test classpath.
+ */
+class BroadcastTimeParserBenchmark {
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm[:ss]");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final int ENTRIES = 500_000;
+    private static final int DAYS = 3_000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        val random = new Random(42);
+        val firstDay = LocalDate.of(2017, 1, 1);
+        val dates = new String[ENTRIES];
+        val times = new String[ENTRIES];
+        for (var i = 0; i < ENTRIES; i++) {
+            dates[i] = DATE_FORMAT.format(firstDay.plusDays(random.nextInt(DAYS)));
+            times[i] = "%02d:%02d:%02d".formatted(random.nextInt(24), random.nextInt(60), random.nextInt(60));
+        }
+
+        val parser = new BroadcastTimeParser(ZONE);
+        for (var round = 1; round <= ROUNDS; round++) {
+            measure(round, "formatter", dates, times,
+                (date, time) -> LocalDateTime.from(DATE_TIME_FORMAT.parse(date + " " + time)).atZone(ZONE));
+            measure(round, "cached", dates, times, parser::parse);
+        }
+    }
+
+    private static void measure(int round, String name, String[] dates, String[] times,
+                                BiFunction<String, String, ZonedDateTime> parse) {
+        val threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        val threadId = Thread.currentThread().threadId();
+        val allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        val startedAt = System.nanoTime();
+        var checksum = 0L;
+        for (var i = 0; i < dates.length; i++) {
+            checksum += parse.apply(dates[i], times[i]).toEpochSecond();
+        }
+        val nanos = System.nanoTime() - startedAt;
+        val allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.printf("round %2d %-9s %5d ns/entry %6d B/entry (checksum %d)%n",
+            round, name, nanos / dates.length, allocated / dates.length, checksum);
+    }
+}
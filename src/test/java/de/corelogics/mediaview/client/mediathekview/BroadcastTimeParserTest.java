@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediathekview;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
+
+class BroadcastTimeParserTest {
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm[:ss]");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final BroadcastTimeParser sut = new BroadcastTimeParser(ZONE);
+
+    @Test
+    void whenParsingEveryDay_thenResultMatchesFormatter() {
+        val times = new String[]{"00:00", "00:00:01", "01:59:59", "02:00", "02:30:00", "03:00", "12:34:56", "23:59:59"};
+        assertSoftly(softly -> {
+            for (var date = LocalDate.of(1975, 1, 1); date.isBefore(LocalDate.of(2045, 1, 1)); date = date.plusDays(1)) {
+                val dateString = DATE_FORMAT.format(date);
+                for (val time : times) {
+                    softly.assertThat(sut.parse(dateString, time))
+                            .describedAs("%s %s", dateString, time)
+                            .isEqualTo(parseWithFormatter(dateString, time));
+                }
+            }
+        });
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "29.02.2020, 10:00",
+            "31.04.2021, 10:00",
+            "31.02.2021, 10:00:30",
+            "31.12.2020, 24:00"})
+    void whenDateNeedsResolving_thenResultMatchesFormatter(String date, String time) {
+        assertThat(sut.parse(date, time)).isEqualTo(parseWithFormatter(date, time));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1.1.2020, 10:00",
+            "01-01-2020, 10:00",
+            "01.13.2020, 10:00",
+            "01.01.2020, 10:60",
+            "01.01.2020, 10:00:",
+            "01.01.2020, 10.00",
+            "01.01.2020, ''"})
+    void whenValuesAreMalformed_thenParseExceptionIsThrown(String date, String time) {
+        assertThatThrownBy(() -> sut.parse(date, time)).isInstanceOf(DateTimeParseException.class);
+    }
+
+    @Test
+    void whenDateAndTimeAreMissing_thenCurrentTimeIsUsed() {
+        val before = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).atZone(ZONE);
+
+        val result = sut.parse(null, null);
+
+        assertThat(result).isBetween(before, LocalDateTime.now().atZone(ZONE));
+    }
+
+    private static ZonedDateTime parseWithFormatter(String date, String time) {
+        return LocalDateTime.from(DATE_TIME_FORMAT.parse(date + " " + time)).atZone(ZONE);
+    }
+}
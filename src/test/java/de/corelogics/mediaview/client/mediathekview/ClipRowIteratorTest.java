@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2021 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediathekview;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ClipRowIteratorTest {
+
+    @Test
+    void whenParsingCorrectTestData_thenExpectedClipEntriesAreReturned() throws IOException {
+        var list = new ArrayList<ClipEntry>();
+        new ClipRowIterator(ClipRowIterator.class.getResourceAsStream("/liste.example.json"))
+                .forEachRemaining(row -> row.toClipEntry().ifPresent(list::add));
+
+        assertThat(list).containsExactly(
+                new ClipEntry(
+                        "channel-name",
+                        "show-title",
+                        ZonedDateTime.of(2000, 1, 1, 1, 1, 0, 0, ZoneId.of("Europe/Berlin")),
+                        "clip-title-1",
+                        "00:10:00",
+                        100L * 1024 * 1024,
+                        "https://somewhere.test/1/content-base",
+                        "https://somewhere.test/1/content-hd"),
+                new ClipEntry(
+                        "channel-name",
+                        "show-title",
+                        ZonedDateTime.of(2000, 1, 2, 2, 2, 0, 0, ZoneId.of("Europe/Berlin")),
+                        "clip-title-2",
+                        "00:20:00",
+                        200L * 1024 * 1024,
+                        "https://somewhere.test/2/content-base",
+                        "https://somewhere.test/2/content-hd"),
+                new ClipEntry(
+                        "channel-name-2",
+                        "show-title-2",
+                        ZonedDateTime.of(2000, 1, 3, 3, 3, 0, 0, ZoneId.of("Europe/Berlin")),
+                        "clip-title-3",
+                        "00:30:00",
+                        300L * 1024 * 1024,
+                        "https://somewhere.test/3/content-base",
+                        "https://somewhere.test/3/content-hd"));
+    }
+
+    @Test
+    void givenUnreadableRow_whenNextRowRepeatsValues_thenValuesOfLastReadableRowAreRepeated() throws IOException {
+        val list = """
+                {"Filmliste":["02.01.2000, 12:00","01.01.2020, 13:00","1","creatorName","hashCode"],
+                "Filmliste":["Sender","Thema","Titel","Datum","Zeit","Dauer","Größe [MB]","Url","Url HD"],
+                "X":["channel-1","show-1","clip-1","01.01.2000","01:01:00","00:10:00","100","https://somewhere.test/1",""],
+                "X":["channel-2","show-2","clip-2","99.99.2000","02:02:00","00:20:00","200","https://somewhere.test/2",""],
+                "X":["","show-3","","03.01.2000","03:03:00","00:30:00","300","https://somewhere.test/3",""]}
+                """;
+        var entries = new ArrayList<ClipEntry>();
+        new ClipRowIterator(new ByteArrayInputStream(list.getBytes(StandardCharsets.UTF_8)))
+                .forEachRemaining(row -> row.toClipEntry().ifPresent(entries::add));
+
+        assertThat(entries)
+                .extracting(ClipEntry::getChannelName, ClipEntry::getContainedIn, ClipEntry::getTitle)
+                .containsExactly(
+                        tuple("channel-1", "show-1", "clip-1"),
+                        tuple("channel-1", "show-3", "clip-1"));
+    }
+
+    @Test
+    void whenTokenizingLargeList_thenOnlyUsedColumnsAreAllocated() throws IOException {
+        val threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        val allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled());
+
+        val entries = 20_000;
+        val list = createList(entries);
+        for (var i = 0; i < 3; i++) {
+            assertThat(countRows(list)).isEqualTo(entries);
+        }
+
+        val allocatedBefore = allocationBean.getCurrentThreadAllocatedBytes();
+        val rows = countRows(list);
+        val bytesPerClip = (allocationBean.getCurrentThreadAllocatedBytes() - allocatedBefore) / rows;
+
+        // the description alone is 800 bytes per entry if it were materialized
+        assertThat(bytesPerClip)
+                .describedAs("bytes allocated per clip: %d", bytesPerClip)
+                .isLessThan(800);
+    }
+
+    private static int countRows(byte[] list) throws IOException {
+        var rows = 0;
+        for (val it = new ClipRowIterator(new ByteArrayInputStream(list)); it.hasNext(); it.next()) {
+            rows++;
+        }
+        return rows;
+    }
+
+    private static byte[] createList(int entries) {
+        val description = "d".repeat(800);
+        val sb = new StringBuilder("""
+                {"Filmliste":["02.01.2000, 12:00","01.01.2020, 13:00","1","creatorName","hashCode"],
+                "Filmliste":["Sender","Thema","Titel","Datum","Zeit","Dauer","Größe [MB]","Beschreibung","Url",
+                "Website","Url Untertitel","Url RTMP","Url Klein","Url RTMP Klein","Url HD","Url RTMP HD","DatumL",
+                "Url History","Geo","neu"]""");
+        for (var i = 0; i < entries; i++) {
+            sb.append(",\"X\":[\"").append(i % 100 == 0 ? "channel" : "").append("\",\"")
+                    .append(i % 10 == 0 ? "show " + i : "").append("\",\"clip ").append(i)
+                    .append("\",\"01.01.2000\",\"01:01:00\",\"00:10:00\",\"100\",\"").append(description)
+                    .append("\",\"https://somewhere.test/").append(i).append("/content-base\",")
+                    .append("\"https://somewhere.test/website\",\"\",\"\",\"33|small\",\"\",\"33|hd\",\"\",")
+                    .append("\"946688460\",\"\",\"DE\",\"false\"]");
+        }
+        return sb.append("}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
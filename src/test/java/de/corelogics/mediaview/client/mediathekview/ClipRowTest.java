@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.client.mediathekview;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClipRowTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            " ",
+            "Tagesschau 20:00 Uhr",
+            "  padded title  ",
+            "\"Quoted\" title",
+            "„Tatort”: Der Fall",
+            "Title © ARD 2024",
+            "Title ©\nsecond line © gone \"too\"",
+            "©",
+            "\"\"",
+            "(Hörfassung) Title",
+            "Ärger im Paradies",
+            "😀 emoji first",
+            "-"})
+    void whenCleaningString_thenResultMatchesRegexBasedCleanup(String in) {
+        assertThat(ClipRow.cleanString(in))
+                .isEqualTo(in.replaceAll("[\"”]", "").replaceAll("©.*", "").replaceFirst("^[^A-Za-z0-9]", "#").trim());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Tagesschau 20:00 Uhr", "plain"})
+    void whenNothingNeedsCleaning_thenInputIsReturnedAsIs(String in) {
+        assertThat(ClipRow.cleanString(in)).isSameAs(in);
+    }
+}
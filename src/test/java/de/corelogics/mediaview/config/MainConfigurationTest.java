@@ -103,6 +103,62 @@ class MainConfigurationTest {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {0, 60, 600})
+    void whenGetDbCommitIntervalSeconds_thenReturnValue(int value) {
+        when(configAccessor.get("DATABASE_COMMIT_INTERVAL_SECONDS", 60)).thenReturn(value);
+        assertThat(sut.dbCommitIntervalSeconds()).isEqualTo(value);
+        verify(configAccessor).get("DATABASE_COMMIT_INTERVAL_SECONDS", 60);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1000, 5000})
+    void whenGetDbRefreshIntervalMillis_thenReturnValue(int value) {
+        when(configAccessor.get("DATABASE_REFRESH_INTERVAL_MILLIS", 1000)).thenReturn(value);
+        assertThat(sut.dbRefreshIntervalMillis()).isEqualTo(value);
+        verify(configAccessor).get("DATABASE_REFRESH_INTERVAL_MILLIS", 1000);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void whenGetDbMemoryMapped_thenReturnValue(boolean value) {
+        when(configAccessor.get("DATABASE_MEMORY_MAPPED", false)).thenReturn(value);
+        assertThat(sut.isDbMemoryMapped()).isEqualTo(value);
+        verify(configAccessor).get("DATABASE_MEMORY_MAPPED", false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void whenGetDbPreloadEnabled_thenReturnValue(boolean value) {
+        when(configAccessor.get("DATABASE_PRELOAD", false)).thenReturn(value);
+        assertThat(sut.isDbPreloadEnabled()).isEqualTo(value);
+        verify(configAccessor).get("DATABASE_PRELOAD", false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void whenGetDbPartitioned_thenReturnValue(boolean value) {
+        when(configAccessor.get("DATABASE_PARTITIONED", false)).thenReturn(value);
+        assertThat(sut.isDbPartitioned()).isEqualTo(value);
+        verify(configAccessor).get("DATABASE_PARTITIONED", false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 8})
+    void whenGetDbSearchThreads_thenReturnValue(int value) {
+        when(configAccessor.get("DATABASE_SEARCH_THREADS", 1)).thenReturn(value);
+        assertThat(sut.dbSearchThreads()).isEqualTo(value);
+        verify(configAccessor).get("DATABASE_SEARCH_THREADS", 1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 100, 500})
+    void whenGetDbSlowQueryMillis_thenReturnValue(int value) {
+        when(configAccessor.get("DATABASE_SLOW_QUERY_MILLIS", 500)).thenReturn(value);
+        assertThat(sut.dbSlowQueryMillis()).isEqualTo(value);
+        verify(configAccessor).get("DATABASE_SLOW_QUERY_MILLIS", 500);
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {10, 100, 1000})
     void whenGetUpdateIntervalFullHours_thenReturnValue(int value) {
@@ -111,6 +167,46 @@ class MainConfigurationTest {
         verify(configAccessor).get("UPDATEINTERVAL_FULL_HOURS", 24);
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {0, 15, 60})
+    void whenGetUpdateIntervalDiffMinutes_thenReturnValue(int value) {
+        when(configAccessor.get("UPDATEINTERVAL_DIFF_MINUTES", 15)).thenReturn(value);
+        assertThat(sut.updateIntervalDiffMinutes()).isEqualTo(value);
+        verify(configAccessor).get("UPDATEINTERVAL_DIFF_MINUTES", 15);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void whenGetIsFullListStreamingEnabled_thenReturnValue(boolean value) {
+        when(configAccessor.get("IMPORT_FULL_STREAMING", true)).thenReturn(value);
+        assertThat(sut.isFullListStreamingEnabled()).isEqualTo(value);
+        verify(configAccessor).get("IMPORT_FULL_STREAMING", true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void whenGetIsFullImportRebuildEnabled_thenReturnValue(boolean value) {
+        when(configAccessor.get("IMPORT_FULL_REBUILD", false)).thenReturn(value);
+        assertThat(sut.isFullImportRebuildEnabled()).isEqualTo(value);
+        verify(configAccessor).get("IMPORT_FULL_REBUILD", false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 5})
+    void whenGetImportListMirrors_thenReturnValue(int value) {
+        when(configAccessor.get("IMPORT_LIST_MIRRORS", 3)).thenReturn(value);
+        assertThat(sut.importListMirrors()).isEqualTo(value);
+        verify(configAccessor).get("IMPORT_LIST_MIRRORS", 3);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 16})
+    void whenGetImportThreads_thenReturnValue(int value) {
+        when(configAccessor.get(eq("IMPORT_THREADS"), anyInt())).thenReturn(value);
+        assertThat(sut.importThreads()).isEqualTo(value);
+        verify(configAccessor).get(eq("IMPORT_THREADS"), anyInt());
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"value1", "value2"})
     void whenGetPublicBaseUrl_thenReturnValue(String value) {
@@ -26,15 +26,40 @@ package de.corelogics.mediaview.service.base.lucene;
 
 import de.corelogics.mediaview.config.MainConfiguration;
 import de.corelogics.mediaview.service.base.lucene.LuceneDirectory;
+import org.apache.lucene.codecs.perfield.PerFieldPostingsFormat;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class LuceneDirectoryTest {
@@ -69,4 +94,275 @@ class LuceneDirectoryTest {
             }
         }
     }
+
+    @Nested
+    @DisplayName("when building documents")
+    class WhenBuildingDocuments {
+        @Test
+        void givenRecurringValue_thenIndexFieldsAreSharedBetweenDocuments() {
+            var first = sut.buildDocument("test", 1).addRecurringField(TestField.NAME, "Some Name").build();
+            var second = sut.buildDocument("test", 1).addRecurringField(TestField.NAME, "Some Name").build();
+
+            assertThat(second.getField(TestField.NAME.stored())).isSameAs(first.getField(TestField.NAME.stored()));
+            assertThat(second.getField(TestField.NAME.sorted())).isSameAs(first.getField(TestField.NAME.sorted()));
+            assertThat(second.getField(TestField.NAME.termLower())).isSameAs(first.getField(TestField.NAME.termLower()));
+        }
+
+        @Test
+        void givenRecurringValue_thenSameFieldsAsForRegularValueAreAdded() {
+            var regular = sut.buildDocument("test", 1).addField(TestField.NAME, "Some Name").build();
+            var recurring = sut.buildDocument("test", 1).addRecurringField(TestField.NAME, "Some Name").build();
+
+            assertThat(recurring.getFields())
+                .extracting(IndexableField::name, IndexableField::stringValue, IndexableField::binaryValue)
+                .containsExactlyElementsOf(regular.getFields().stream()
+                    .map(f -> tuple(f.name(), f.stringValue(), f.binaryValue()))
+                    .toList());
+        }
+    }
+
+    @Nested
+    @DisplayName("when updating")
+    class WhenUpdating {
+        @Test
+        void givenNoRefreshInterval_thenUpdateIsVisibleImmediately() throws IOException {
+            addTestDocument(sut);
+            assertThat(countTestDocuments(sut)).isEqualTo(1);
+        }
+
+        @Test
+        void givenRefreshInterval_thenUpdateIsVisibleAfterRefresh() throws IOException {
+            when(config.dbRefreshIntervalMillis()).thenReturn(60_000);
+            when(config.dbCommitIntervalSeconds()).thenReturn(60);
+            var directory = new LuceneDirectory(config);
+
+            addTestDocument(directory);
+            assertThat(countTestDocuments(directory)).isZero();
+
+            directory.refresh();
+            assertThat(countTestDocuments(directory)).isEqualTo(1);
+        }
+
+        @Test
+        void givenSameReader_thenFacetStateIsReused() throws IOException {
+            addTestDocument(sut);
+            var first = sut.performSearch("test", searcher -> sut.facetState(searcher, TestField.NAME));
+            var second = sut.performSearch("test", searcher -> sut.facetState(searcher, TestField.NAME));
+            assertThat(second).isSameAs(first);
+        }
+
+        @Test
+        void givenIndexWasRefreshed_thenFacetStateIsRebuilt() throws IOException {
+            addTestDocument(sut);
+            var before = sut.performSearch("test", searcher -> sut.facetState(searcher, TestField.NAME));
+
+            addTestDocument(sut);
+            var after = sut.performSearch("test", searcher -> sut.facetState(searcher, TestField.NAME));
+
+            assertThat(after).isNotSameAs(before);
+            assertThat(after.getReader().numDocs()).isEqualTo(before.getReader().numDocs() + 1);
+        }
+
+        @Test
+        void givenIdField_thenItIsWrittenWithBloomFilter() throws IOException {
+            var document = sut.buildDocument("test", 1).addField(TestField.ID, "id-1").build();
+            sut.performUpdate("test", writer -> writer.updateDocument(new Term(TestField.ID.term(), "id-1"), document));
+
+            assertThat(sut.performSearch("test", searcher -> searcher.getIndexReader().leaves().stream()
+                .map(leaf -> leaf.reader().getFieldInfos().fieldInfo(TestField.ID.term()))
+                .filter(Objects::nonNull)
+                .map(info -> info.getAttribute(PerFieldPostingsFormat.PER_FIELD_FORMAT_KEY))
+                .toList()))
+                .containsExactly("BloomFilter");
+        }
+
+        private void addTestDocument(LuceneDirectory directory) throws IOException {
+            var document = directory.buildDocument("test", 1).addField(TestField.NAME, "Some Name").build();
+            directory.performUpdate("test", writer -> writer.addDocument(document));
+        }
+
+        private int countTestDocuments(LuceneDirectory directory) {
+            return directory.performSearch("test", searcher -> searcher.count(directory.createDoctypeQuery("test")));
+        }
+    }
+
+    @Nested
+    @DisplayName("when closing")
+    class WhenClosing {
+        @Test
+        void givenUncommittedUpdates_thenTheyAreReadWhenIndexIsOpenedAgain(@TempDir Path dir) throws IOException {
+            when(config.dbLocation()).thenReturn(Optional.of(dir.resolve("index").toString()));
+            when(config.dbCommitIntervalSeconds()).thenReturn(3600);
+            var directory = new LuceneDirectory(config);
+            directory.performUpdate("test", writer -> writer.addDocument(directory.buildDocument("test", 1).build()));
+            directory.updateCommitData(data -> data.put("test.key", "value"));
+
+            directory.close();
+
+            var reopened = new LuceneDirectory(config);
+            assertThat(reopened.commitData()).containsEntry("test.key", "value");
+            assertThat(reopened.performSearch("test", searcher -> searcher.count(reopened.createDoctypeQuery("test")))).isEqualTo(1);
+            reopened.close();
+        }
+    }
+
+    @Nested
+    @DisplayName("when sorting the index")
+    class WhenSortingTheIndex {
+        private final Sort indexSort = new Sort(new SortField(TestField.NAME.sorted(), SortField.Type.STRING));
+
+        @Test
+        void givenIndexWrittenUnsorted_thenItsDocumentsAndCommitDataAreKeptInOrder(@TempDir Path dir) throws IOException {
+            var index = dir.resolve("index");
+            try (var directory = FSDirectory.open(index);
+                 var writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                for (var name : List.of("B", "A")) {
+                    var document = new Document();
+                    document.add(new StringField(LuceneDirectory.DOCUMENT_FIELD_TYPE, "test", Field.Store.NO));
+                    document.add(new SortedDocValuesField(TestField.NAME.sorted(), new BytesRef(name)));
+                    writer.addDocument(document);
+                }
+                writer.setLiveCommitData(Map.of("test.key", "value").entrySet());
+            }
+            when(config.dbLocation()).thenReturn(Optional.of(index.toString()));
+
+            var directory = new LuceneDirectory(config, indexSort, null);
+
+            assertThat(directory.commitData()).containsEntry("test.key", "value");
+            assertThat(directory.performSearch("test", searcher -> searcher.getIndexReader().leaves().stream()
+                .map(leaf -> leaf.reader().getMetaData().sort())
+                .toList())).containsOnly(indexSort);
+            assertThat(directory.performSearch("test", searcher -> searcher.count(directory.createDoctypeQuery("test")))).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    @DisplayName("when partitioned")
+    class WhenPartitioned {
+        @Test
+        void givenDocumentsInPartitions_thenTheyAreSearchedTogether() throws IOException {
+            when(config.isDbPartitioned()).thenReturn(true);
+            var directory = new LuceneDirectory(config);
+
+            addTestDocument(directory, "2020-W39");
+            addTestDocument(directory, "2020-W40");
+
+            assertThat(directory.partitions()).containsExactly("2020-W39", "2020-W40");
+            assertThat(countTestDocuments(directory)).isEqualTo(2);
+            assertThat(directory.performSearch("test", List.of("2020-W40", "2020-W41"), searcher ->
+                searcher.count(directory.createDoctypeQuery("test")))).isEqualTo(1);
+        }
+
+        @Test
+        void givenPartitionIsDropped_thenItsDocumentsAreGone() throws IOException {
+            when(config.isDbPartitioned()).thenReturn(true);
+            var directory = new LuceneDirectory(config);
+            addTestDocument(directory, "2020-W39");
+            addTestDocument(directory, "2020-W40");
+            var versionBefore = directory.performSearch("test", LuceneDirectory::readerVersion);
+
+            directory.dropPartition("2020-W39");
+
+            assertThat(directory.partitions()).containsExactly("2020-W40");
+            assertThat(countTestDocuments(directory)).isEqualTo(1);
+            assertThat(directory.performSearch("test", LuceneDirectory::readerVersion)).isGreaterThan(versionBefore);
+        }
+
+        @Test
+        void givenSearchThreads_thenLargePartitionsAreSearchedConcurrently() throws IOException {
+            when(config.isDbPartitioned()).thenReturn(true);
+            when(config.dbSearchThreads()).thenReturn(4);
+            try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                var directory = new LuceneDirectory(config, null, executor);
+                var document = directory.buildDocument("test", 1).build();
+                for (var partition : List.of("2020-W39", "2020-W40")) {
+                    directory.performUpdate("test", partition, writer -> writer.addDocuments(Collections.nCopies(60_000, document)));
+                }
+
+                assertThat(directory.performSearch("test", searcher -> searcher.getSlices().length)).isEqualTo(2);
+                assertThat(countTestDocuments(directory)).isEqualTo(120_000);
+            }
+        }
+
+        @Test
+        void givenNotPartitioned_thenPartitionUpdatesGoToTheIndex() throws IOException {
+            addTestDocument(sut, "2020-W39");
+
+            assertThat(sut.partitions()).isEmpty();
+            assertThat(countTestDocuments(sut)).isEqualTo(1);
+        }
+
+        private void addTestDocument(LuceneDirectory directory, String partition) throws IOException {
+            var document = directory.buildDocument("test", 1).addField(TestField.NAME, "Some Name").build();
+            directory.performUpdate("test", partition, writer -> writer.addDocument(document));
+        }
+
+        private int countTestDocuments(LuceneDirectory directory) {
+            return directory.performSearch("test", searcher -> searcher.count(directory.createDoctypeQuery("test")));
+        }
+    }
+
+    @Nested
+    @DisplayName("when recording metrics")
+    class WhenRecordingMetrics {
+        @Test
+        void givenSearch_thenHitsAndLoadedDocumentsAreRecordedForCallSite() throws IOException {
+            addTestDocuments(2);
+
+            sut.performSearch("test.search", searcher -> {
+                for (var scoreDoc : searcher.search(sut.createDoctypeQuery("test"), 10).scoreDocs) {
+                    sut.loadDocument(searcher, scoreDoc.doc);
+                }
+                return null;
+            });
+
+            var metrics = sut.getMetrics();
+            assertThat(metrics.count(IndexMetrics.OPERATION_SEARCH, "test.search")).isEqualTo(1);
+            assertThat(metrics.hits(IndexMetrics.OPERATION_SEARCH, "test.search")).isEqualTo(2);
+            assertThat(metrics.storedDocuments(IndexMetrics.OPERATION_SEARCH, "test.search")).isEqualTo(2);
+        }
+
+        @Test
+        void givenUpdate_thenItIsRecordedForCallSite() throws IOException {
+            addTestDocuments(1);
+
+            assertThat(sut.getMetrics().count(IndexMetrics.OPERATION_UPDATE, "test.update")).isEqualTo(1);
+        }
+
+        @Test
+        void givenSearches_thenMetricsAreWrittenInPrometheusFormat() throws IOException {
+            addTestDocuments(3);
+            sut.performSearch("test.count", searcher -> searcher.count(sut.createDoctypeQuery("test")));
+            sut.performSearch("test.count", searcher -> searcher.count(sut.createDoctypeQuery("test")));
+
+            var text = new StringBuilder();
+            sut.getMetrics().writePrometheus(text);
+
+            assertThat(text.toString())
+                .contains("mediaview_index_duration_seconds_bucket{operation=\"search\",call_site=\"test.count\",le=\"+Inf\"} 2\n")
+                .contains("mediaview_index_duration_seconds_count{operation=\"search\",call_site=\"test.count\"} 2\n")
+                .contains("mediaview_index_hits_total{operation=\"search\",call_site=\"test.count\"} 6\n")
+                .contains("mediaview_index_stored_documents_total{operation=\"search\",call_site=\"test.count\"} 0\n");
+        }
+
+        private void addTestDocuments(int count) throws IOException {
+            var document = sut.buildDocument("test", 1).addField(TestField.NAME, "Some Name").build();
+            sut.performUpdate("test.update", writer -> writer.addDocuments(Collections.nCopies(count, document)));
+        }
+    }
+
+    private enum TestField implements RepoTypeFields {
+        ID,
+        NAME;
+
+        @Override
+        public boolean isTerm() {
+            return true;
+        }
+
+        @Override
+        public boolean isSort() {
+            return true;
+        }
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.service.importer;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ImportPipelineTest {
+    @Test
+    void givenSourceItems_thenAllAreMappedAndIndexedInBatches() {
+        val indexed = new ConcurrentLinkedQueue<List<String>>();
+        val sut = new ImportPipeline<Integer, List<String>>(
+            10,
+            4,
+            batch -> batch.stream().map(i -> "item-" + i).toList(),
+            indexed::add,
+            () -> false);
+
+        assertThat(sut.run(IntStream.range(0, 95).boxed().iterator())).isTrue();
+
+        assertThat(indexed).extracting(List::size).containsExactlyInAnyOrder(10, 10, 10, 10, 10, 10, 10, 10, 10, 5);
+        assertThat(indexed.stream().flatMap(List::stream))
+            .containsExactlyInAnyOrderElementsOf(IntStream.range(0, 95).mapToObj(i -> "item-" + i).toList());
+        assertThat(sut.getStageStatistics())
+            .extracting(ImportPipeline.StageStatistics::getName, ImportPipeline.StageStatistics::getItems)
+            .containsExactly(
+                tuple("tokenize", 95L),
+                tuple("map", 95L),
+                tuple("index", 95L));
+    }
+
+    @Test
+    void givenBatchesAreMappedOutOfOrder_thenTheyAreIndexedInSourceOrder() {
+        val indexed = new ConcurrentLinkedQueue<Integer>();
+        val sut = new ImportPipeline<Integer, Integer>(
+            10,
+            4,
+            batch -> {
+                // earlier batches take longer, so later ones overtake them
+                sleep(Math.max(0, 20 - batch.getFirst() / 10));
+                return batch.getFirst();
+            },
+            indexed::add,
+            () -> false);
+
+        assertThat(sut.run(IntStream.range(0, 500).boxed().iterator())).isTrue();
+
+        assertThat(indexed).containsExactlyElementsOf(IntStream.range(0, 50).map(i -> i * 10).boxed().toList());
+    }
+
+    @Test
+    void givenMapperFails_thenExceptionIsRethrown() {
+        val sut = new ImportPipeline<Integer, Integer>(
+            10,
+            2,
+            batch -> {
+                throw new IllegalStateException("mapping failed");
+            },
+            ignored -> {
+            },
+            () -> false);
+
+        assertThatIllegalStateException()
+            .isThrownBy(() -> sut.run(IntStream.range(0, 1000).boxed().iterator()))
+            .withMessage("mapping failed");
+    }
+
+    @Test
+    void givenStoppedWhileReading_thenReturnFalse() {
+        val stopped = new AtomicBoolean();
+        val sut = new ImportPipeline<Integer, Integer>(
+            10,
+            2,
+            List::size,
+            ignored -> {
+            },
+            stopped::get);
+
+        val source = IntStream.range(0, 1000).boxed().peek(i -> {
+            if (i == 500) {
+                stopped.set(true);
+            }
+        }).iterator();
+
+        assertThat(sut.run(source)).isFalse();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
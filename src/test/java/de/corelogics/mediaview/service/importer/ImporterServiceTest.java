@@ -24,8 +24,12 @@
 
 package de.corelogics.mediaview.service.importer;
 
+import de.corelogics.mediaview.client.mediatheklist.ListDownload;
 import de.corelogics.mediaview.client.mediatheklist.MediathekListClient;
+import de.corelogics.mediaview.client.mediatheklist.model.ListVersion;
 import de.corelogics.mediaview.client.mediathekview.ClipEntry;
+import de.corelogics.mediaview.client.mediathekview.ClipRow;
+import de.corelogics.mediaview.client.mediathekview.FilmlisteMetaData;
 import de.corelogics.mediaview.client.mediathekview.MediathekListe;
 import de.corelogics.mediaview.client.mediathekview.MediathekViewImporter;
 import de.corelogics.mediaview.config.MainConfiguration;
@@ -43,17 +47,20 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import static org.assertj.core.api.SoftAssertions.assertSoftly;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -72,6 +79,8 @@ class ImporterServiceTest {
     private MediathekViewImporter importer;
     @Mock
     private ClipRepository clipRepository;
+    @Mock
+    private ClipRepository.FullImport fullImport;
     @Spy
     private Supplier<ZonedDateTime> currentTimeProvider = new Supplier<ZonedDateTime>() {
         @Override
@@ -126,6 +135,26 @@ class ImporterServiceTest {
             val expectedDelay = Duration.ofSeconds(10);
             verify(baseThreading).schedule(any(), eq(expectedDelay));
         }
+
+        @Test
+        void givenDiffIntervalConfigured_thenSchedulesIncrementalImports() {
+            when(mainConfiguration.updateIntervalDiffMinutes()).thenReturn(15);
+            when(clipRepository.findLastFullImport()).thenReturn(Optional.empty());
+
+            sut.scheduleImport();
+
+            verify(baseThreading).schedulePeriodic(any(), eq(Duration.ofMinutes(15)), eq(Duration.ofMinutes(15)));
+        }
+
+        @Test
+        void givenDiffIntervalZero_thenNoIncrementalImportsAreScheduled() {
+            when(mainConfiguration.updateIntervalDiffMinutes()).thenReturn(0);
+            when(clipRepository.findLastFullImport()).thenReturn(Optional.empty());
+
+            sut.scheduleImport();
+
+            verify(baseThreading, never()).schedulePeriodic(any(), any(), any());
+        }
     }
 
     @Test
@@ -144,15 +173,17 @@ class ImporterServiceTest {
 
             val mockInputStream = mock(InputStream.class);
             val mockMediathekListe = mock(MediathekListe.class);
-            when(mediathekListClient.openMediathekListeFull()).thenReturn(mockInputStream);
+            when(mediathekListClient.openMediathekListeFull(any())).thenReturn(Optional.of(new ListDownload(mockInputStream, ListVersion.UNKNOWN)));
             when(importer.createList(mockInputStream)).thenReturn(mockMediathekListe);
-            when(mockMediathekListe.getStream()).thenReturn(createClipEntries(1).stream());
+            when(mockMediathekListe.getRows()).thenReturn(createClipRows(1).stream());
+            stubPrepareClips();
 
             sut.fullImport();
 
-            verify(clipRepository).addClips(any(), eq(startTime));
-            verify(clipRepository).deleteClipsImportedBefore(eq(startTime));
-            verify(clipRepository).updateLastFullImport(eq(endTime));
+            verify(clipRepository).prepareClips(any());
+            verify(fullImport).addClips(any(ClipRepository.PreparedClips.class));
+            verify(fullImport).finish();
+            verify(clipRepository).updateLastFullImport(eq(endTime), any());
         }
 
         @Test
@@ -161,72 +192,271 @@ class ImporterServiceTest {
 
             sut.fullImport();
 
-            verify(clipRepository, never()).addClips(any(), any());
+            verify(fullImport, never()).addClips(any(ClipRepository.PreparedClips.class));
         }
 
         @Test
         void given20ClipFound_thenCallsAddClipsOnce() throws Exception {
-            val entries = createClipEntries(20);
+            val entries = createClipRows(20);
             setupFullImportTest(entries.stream());
 
             sut.fullImport();
 
-            verify(clipRepository, times(1)).addClips(any(), any());
+            verify(fullImport, times(1)).addClips(any(ClipRepository.PreparedClips.class));
         }
 
         @Test
         void given2500ClipsFound_thenCallsAddClipsThreeTimes() throws Exception {
-            val entries = createClipEntries(2500);
+            val entries = createClipRows(2500);
             setupFullImportTest(entries.stream());
 
             sut.fullImport();
 
-            verify(clipRepository, times(3)).addClips(any(), any());
+            verify(fullImport, times(3)).addClips(any(ClipRepository.PreparedClips.class));
 
-            val captor = ArgumentCaptor.forClass(List.class);
-            verify(clipRepository, times(3)).addClips(captor.capture(), any());
-            val calls = captor.getAllValues();
-            assertSoftly(softly -> {
-                softly.assertThat(calls.get(0)).hasSize(1000);
-                softly.assertThat(calls.get(1)).hasSize(1000);
-                softly.assertThat(calls.get(2)).hasSize(500);
-            });
+            val captor = ArgumentCaptor.forClass(Collection.class);
+            verify(clipRepository, times(3)).prepareClips(captor.capture());
+            // batches are mapped concurrently, so they may arrive in any order
+            assertThat(captor.getAllValues())
+                .extracting(Collection::size)
+                .containsExactlyInAnyOrder(1000, 1000, 500);
         }
 
-        private void setupFullImportTest(Stream<ClipEntry> entries) throws Exception {
+        @Test
+        void givenSeveralImportThreads_thenBatchesAreAddedInListOrder() throws Exception {
+            when(mainConfiguration.importThreads()).thenReturn(4);
+            setupFullImportTest(createClipRows(3500).stream());
+            val preparedByFirstTitle = new ConcurrentHashMap<String, ClipRepository.PreparedClips>();
+            doAnswer(i -> {
+                Collection<ClipEntry> entries = i.getArgument(0);
+                val firstTitle = entries.iterator().next().getTitle();
+                if ("title0".equals(firstTitle)) {
+                    // the first batch is mapped last
+                    Thread.sleep(200);
+                }
+                val prepared = mock(ClipRepository.PreparedClips.class);
+                preparedByFirstTitle.put(firstTitle, prepared);
+                return prepared;
+            }).when(clipRepository).prepareClips(any());
+
+            sut.fullImport();
+
+            // with clips listed twice, the last listing wins only if batches are added in list order
+            val inOrder = inOrder(fullImport);
+            for (val firstTitle : List.of("title0", "title1000", "title2000", "title3000")) {
+                inOrder.verify(fullImport).addClips(preparedByFirstTitle.get(firstTitle));
+            }
+            inOrder.verify(fullImport).finish();
+        }
+
+        @Test
+        void givenRebuildEnabled_thenClipsAreImportedIntoRebuild() throws Exception {
+            when(mainConfiguration.isFullImportRebuildEnabled()).thenReturn(true);
+            when(clipRepository.startFullRebuild()).thenReturn(fullImport);
+            setupFullImportTest(createClipRows(20).stream());
+
+            sut.fullImport();
+
+            verify(clipRepository, never()).startFullImport();
+            verify(fullImport).addClips(any(ClipRepository.PreparedClips.class));
+            verify(fullImport).finish();
+            verify(fullImport).close();
+        }
+
+        @Test
+        void givenStreamingImportFails_thenRetriesWithBufferedList() throws Exception {
+            val mockInputStream = mock(InputStream.class);
+            val mockMediathekListe = mock(MediathekListe.class);
+            when(mainConfiguration.isFullListStreamingEnabled()).thenReturn(true);
+            when(mediathekListClient.openMediathekListeFull(any())).thenThrow(new IOException("connection reset"));
+            when(mediathekListClient.openMediathekListeFullBuffered(any())).thenReturn(Optional.of(new ListDownload(mockInputStream, ListVersion.UNKNOWN)));
+            when(importer.createList(mockInputStream)).thenReturn(mockMediathekListe);
+            when(mockMediathekListe.getRows()).thenReturn(createClipRows(20).stream());
+            stubPrepareClips();
+
+            sut.fullImport();
+
+            verify(fullImport, times(1)).addClips(any(ClipRepository.PreparedClips.class));
+            verify(fullImport).finish();
+            verify(clipRepository).updateLastFullImport(any(), any());
+        }
+
+        @Test
+        void givenStreamingDisabledAndImportFails_thenDoesNotRetry() throws Exception {
+            when(mainConfiguration.isFullListStreamingEnabled()).thenReturn(false);
+            when(mediathekListClient.openMediathekListeFull(any())).thenThrow(new IOException("connection reset"));
+
+            sut.fullImport();
+
+            verify(mediathekListClient, never()).openMediathekListeFullBuffered(any());
+            verify(fullImport, never()).addClips(any(ClipRepository.PreparedClips.class));
+            verify(clipRepository).updateLastFullImport(any(), any());
+        }
+
+        @Test
+        void givenServerReportsListNotModified_thenNothingIsImportedButRunIsRecorded() throws Exception {
+            val knownVersion = new ListVersion("\"etag\"", null, "hash-1");
+            when(clipRepository.findLastFullImportVersion()).thenReturn(Optional.of(knownVersion));
+            when(mediathekListClient.openMediathekListeFull(knownVersion)).thenReturn(Optional.empty());
+
+            sut.fullImport();
+
+            verify(importer, never()).createList(any());
+            verify(fullImport, never()).finish();
+            verify(clipRepository).updateLastFullImport(any(), eq(knownVersion));
+        }
+
+        @Test
+        void givenListHashUnchanged_thenImportIsSkippedAfterHeader() throws Exception {
+            when(clipRepository.findLastFullImportVersion()).thenReturn(Optional.of(new ListVersion("\"etag\"", null, "hash-1")));
             val mockInputStream = mock(InputStream.class);
             val mockMediathekListe = mock(MediathekListe.class);
-            when(mediathekListClient.openMediathekListeFull()).thenReturn(mockInputStream);
+            when(mediathekListClient.openMediathekListeFull(any()))
+                .thenReturn(Optional.of(new ListDownload(mockInputStream, new ListVersion("\"other-etag\"", null, null))));
             when(importer.createList(mockInputStream)).thenReturn(mockMediathekListe);
-            when(mockMediathekListe.getStream()).thenReturn(entries);
+            when(mockMediathekListe.getMetaData()).thenReturn(createMetaData("hash-1"));
+
+            sut.fullImport();
+
+            verify(mockMediathekListe, never()).getRows();
+            verify(mockInputStream).close();
+            verify(clipRepository, never()).prepareClips(any());
+            verify(fullImport, never()).finish();
+            verify(clipRepository).updateLastFullImport(any(), eq(new ListVersion("\"other-etag\"", null, "hash-1")));
+        }
+
+        @Test
+        void givenListHashChanged_thenListIsImportedAndNewVersionRecorded() throws Exception {
+            when(clipRepository.findLastFullImportVersion()).thenReturn(Optional.of(new ListVersion(null, null, "hash-1")));
+            val mockInputStream = mock(InputStream.class);
+            val mockMediathekListe = mock(MediathekListe.class);
+            when(mediathekListClient.openMediathekListeFull(any()))
+                .thenReturn(Optional.of(new ListDownload(mockInputStream, new ListVersion("\"etag\"", "Sat, 01 Jan 2000 00:00:00 GMT", null))));
+            when(importer.createList(mockInputStream)).thenReturn(mockMediathekListe);
+            when(mockMediathekListe.getMetaData()).thenReturn(createMetaData("hash-2"));
+            when(mockMediathekListe.getRows()).thenReturn(createClipRows(20).stream());
+            stubPrepareClips();
+
+            sut.fullImport();
+
+            verify(fullImport).addClips(any(ClipRepository.PreparedClips.class));
+            verify(fullImport).finish();
+            verify(clipRepository).updateLastFullImport(any(),
+                eq(new ListVersion("\"etag\"", "Sat, 01 Jan 2000 00:00:00 GMT", "hash-2")));
+        }
+
+        @Test
+        void givenImportFails_thenListVersionIsForgotten() throws Exception {
+            when(clipRepository.findLastFullImportVersion()).thenReturn(Optional.of(new ListVersion(null, null, "hash-1")));
+            when(mainConfiguration.isFullListStreamingEnabled()).thenReturn(false);
+            when(mediathekListClient.openMediathekListeFull(any())).thenThrow(new IOException("connection reset"));
+
+            sut.fullImport();
+
+            verify(clipRepository).updateLastFullImport(any(), eq(ListVersion.UNKNOWN));
+        }
+
+        private FilmlisteMetaData createMetaData(String hash) {
+            return new FilmlisteMetaData("01.01.2000, 12:00", "01.01.2000, 11:00", "3", "creator", hash);
+        }
+
+        private void setupFullImportTest(Stream<ClipRow> entries) throws Exception {
+            val mockInputStream = mock(InputStream.class);
+            val mockMediathekListe = mock(MediathekListe.class);
+            when(mediathekListClient.openMediathekListeFull(any())).thenReturn(Optional.of(new ListDownload(mockInputStream, ListVersion.UNKNOWN)));
+            when(importer.createList(mockInputStream)).thenReturn(mockMediathekListe);
+            when(mockMediathekListe.getRows()).thenReturn(entries);
+            stubPrepareClips();
         }
 
         @Test
         void givenShutdownCalledDuringProcessing_thenStopsEarly() throws Exception {
-            val entries = createClipEntries(2000);
+            val entries = createClipRows(2000);
             val callCount = new AtomicInteger(0);
 
             val mockInputStream = mock(InputStream.class);
             val mockMediathekListe = mock(MediathekListe.class);
-            when(mediathekListClient.openMediathekListeFull()).thenReturn(mockInputStream);
+            when(mediathekListClient.openMediathekListeFull(any())).thenReturn(Optional.of(new ListDownload(mockInputStream, ListVersion.UNKNOWN)));
             when(importer.createList(mockInputStream)).thenReturn(mockMediathekListe);
-            when(mockMediathekListe.getStream()).thenReturn(entries.stream().peek(e -> {
+            when(mockMediathekListe.getRows()).thenReturn(entries.stream().peek(e -> {
                 if (callCount.incrementAndGet() == 500) {
                     sut.shutdown();
                 }
             }));
+            stubPrepareClips();
 
             sut.fullImport();
 
-            verify(clipRepository, never()).deleteClipsImportedBefore(any());
-            verify(clipRepository, never()).updateLastFullImport(any());
+            verify(fullImport, never()).finish();
+            verify(fullImport).close();
+            verify(clipRepository, never()).updateLastFullImport(any(), any());
+        }
+
+    }
+
+    @Nested
+    class WhenDiffImport {
+        @Test
+        void thenAddsClipsWithoutDeletingOrRescheduling() throws Exception {
+            val startTime = ZonedDateTime.now();
+            when(currentTimeProvider.get()).thenReturn(startTime);
+            when(clipRepository.findLastFullImport()).thenReturn(Optional.of(startTime.minusHours(1)));
+            val mockInputStream = mock(InputStream.class);
+            val mockMediathekListe = mock(MediathekListe.class);
+            when(mediathekListClient.openMediathekListeDiff()).thenReturn(mockInputStream);
+            when(importer.createList(mockInputStream)).thenReturn(mockMediathekListe);
+            when(mockMediathekListe.getRows()).thenReturn(createClipRows(20).stream());
+            stubPrepareClips();
+
+            sut.diffImport();
+
+            verify(clipRepository).prepareClips(any());
+            verify(clipRepository).addClips(any(ClipRepository.PreparedClips.class));
+            verify(clipRepository).saveFingerprints();
+            verify(clipRepository, never()).startFullImport();
+            verify(clipRepository, never()).updateLastFullImport(any(), any());
+            verify(baseThreading, never()).schedule(any(), any());
+        }
+
+        @Test
+        void givenNoFullImportYet_thenDiffIsNotImported() throws Exception {
+            when(clipRepository.findLastFullImport()).thenReturn(Optional.empty());
+
+            sut.diffImport();
+
+            verify(mediathekListClient, never()).openMediathekListeDiff();
         }
 
-        private List<ClipEntry> createClipEntries(int count) {
-            return IntStream.range(0, count)
-                .mapToObj(i -> new ClipEntry("channel" + i, "show" + i, ZonedDateTime.now(),
-                    "title" + i, "duration" + i, 1000L, "url" + i, "urlHd" + i))
-                .toList();
+        @Test
+        void givenDiffCannotBeOpened_thenNothingIsChanged() throws Exception {
+            when(clipRepository.findLastFullImport()).thenReturn(Optional.of(ZonedDateTime.now()));
+            when(mediathekListClient.openMediathekListeDiff()).thenThrow(new IOException("not found"));
+
+            sut.diffImport();
+
+            verify(clipRepository, never()).addClips(any(ClipRepository.PreparedClips.class));
         }
+
+        @Test
+        void givenShutdown_thenDiffIsNotImported() throws Exception {
+            sut.shutdown();
+
+            sut.diffImport();
+
+            verifyNoInteractions(mediathekListClient, clipRepository);
+        }
+    }
+
+    private void stubPrepareClips() {
+        lenient().when(clipRepository.prepareClips(any()))
+            .thenAnswer(i -> mock(ClipRepository.PreparedClips.class));
+        lenient().when(clipRepository.startFullImport()).thenReturn(fullImport);
+    }
+
+    private List<ClipRow> createClipRows(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new ClipRow("channel" + i, "show" + i, "title" + i, "01.01.2020", "20:15",
+                "duration" + i, "1", "url" + i, "urlHd" + i))
+            .toList();
     }
 }
@@ -28,6 +28,7 @@ import de.corelogics.mediaview.config.MainConfiguration;
 import de.corelogics.mediaview.service.base.networking.WebServer;
 import de.corelogics.mediaview.service.playback.prefetched.downloader.DownloadManager;
 import de.corelogics.mediaview.service.repository.clip.ClipRepository;
+import de.corelogics.mediaview.util.IdUtils;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -40,8 +41,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -80,11 +79,10 @@ class ForwardingProxyServerTest {
     class WhenHandlingHead {
         @Test
         void givenRealWebRequest_thenForwardToHandlerMethod() throws IOException {
-            when(request.getPathInfo()).thenReturn(
-                "/a/b/c/" + Base64.getEncoder().encodeToString("clipid".getBytes(StandardCharsets.UTF_8)));
-            when(clipRepository.findClipById("clipid")).thenReturn(Optional.empty());
+            when(request.getPathInfo()).thenReturn("/a/b/c/" + IdUtils.encodeClipId(1234L));
+            when(clipRepository.findClipById(1234L)).thenReturn(Optional.empty());
             sut.getServlet().doHead(request, response);
-            verify(clipRepository).findClipById("clipid");
+            verify(clipRepository).findClipById(1234L);
             verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
         }
     }
@@ -82,14 +82,14 @@ class CacheDirectoryTest {
                 .numberOfChunks(100);
 
             // writing metadata
-            sut.writeMetadata("1234", clipMetadata);
+            sut.writeMetadata(1234L, clipMetadata);
             assertThat(tempDir
                 .listFiles(
-                    pathname -> (IdUtils.encodeId("1234") + ".json").equals(pathname.getName())))
+                    pathname -> (IdUtils.encodeClipId(1234L) + ".json").equals(pathname.getName())))
                 .hasSize(1);
 
             // reading metadata
-            val readClipMetadata = sut.loadMetadata("1234");
+            val readClipMetadata = sut.loadMetadata(1234L);
             assertThat(readClipMetadata).isPresent()
                 .get()
                 .usingRecursiveComparison()
@@ -103,9 +103,9 @@ class CacheDirectoryTest {
 
             @Test
             void whenWritingContent_thenWriteCorrectDataAtCorrectPosition() throws IOException, CacheSizeExhaustedException {
-                sut.growContentFile("1234", 2500);
-                sut.writeContent("1234", 1000, TEST_DATA_BYTES);
-                sut.writeContent("1234", 2000, "Some More Data".getBytes(US_ASCII));
+                sut.growContentFile(1234L, 2500);
+                sut.writeContent(1234L, 1000, TEST_DATA_BYTES);
+                sut.writeContent(1234L, 2000, "Some More Data".getBytes(US_ASCII));
 
                 var data = new byte[TEST_DATA_BYTES.length];
                 data[0] = "0".getBytes(US_ASCII)[0];
@@ -113,9 +113,9 @@ class CacheDirectoryTest {
 
                 val a = new SoftAssertions();
                 a.assertThat(
-                        sut.readContentByte("1234", 1000))
+                        sut.readContentByte(1234L, 1000))
                     .isEqualTo('M');
-                a.assertThat(sut.readContentBytes("1234", 1000, data, 1, data.length - 2))
+                a.assertThat(sut.readContentBytes(1234L, 1000, data, 1, data.length - 2))
                     .isEqualTo(TEST_DATA_BYTES.length - 2);
                 a.assertThat(new String(data, US_ASCII)).isEqualTo("0My Test Da0");
 
@@ -124,14 +124,14 @@ class CacheDirectoryTest {
 
             @Test
             void givenContentIsThereButNotOpened_thenReadCorrectly() throws IOException, CacheSizeExhaustedException {
-                sut.growContentFile("1234", 1000);
-                sut.writeContent("1234", 0, TEST_DATA_BYTES);
+                sut.growContentFile(1234L, 1000);
+                sut.writeContent(1234L, 0, TEST_DATA_BYTES);
                 when(ticker.read()).thenReturn(TimeUnit.MINUTES.toNanos(10));
                 sut.cleanUp();
                 // file should be closed now
 
                 val read = new byte[TEST_DATA_BYTES.length];
-                assertThat(sut.readContentBytes("1234", 0, read, 0, read.length))
+                assertThat(sut.readContentBytes(1234L, 0, read, 0, read.length))
                     .isEqualTo(read.length);
                 assertThat(new String(read, US_ASCII)).isEqualTo(TEST_DATA);
 
@@ -139,63 +139,63 @@ class CacheDirectoryTest {
 
             @Test
             void givenReadPositionIsTooLarge_thenExceptionIsThrown() throws IOException, CacheSizeExhaustedException {
-                sut.growContentFile("1234", 12_000);
-                sut.writeContent("1234", 10_000, TEST_DATA_BYTES);
+                sut.growContentFile(1234L, 12_000);
+                sut.writeContent(1234L, 10_000, TEST_DATA_BYTES);
                 val read = new byte[TEST_DATA_BYTES.length];
                 val a = new SoftAssertions();
                 a.assertThatExceptionOfType(EOFException.class)
-                    .isThrownBy(() -> sut.readContentBytes("1234", 20_000L, read, 0, read.length));
+                    .isThrownBy(() -> sut.readContentBytes(1234L, 20_000L, read, 0, read.length));
                 a.assertThatExceptionOfType(EOFException.class)
-                    .isThrownBy(() -> sut.readContentByte("1234", 30_000L));
+                    .isThrownBy(() -> sut.readContentByte(1234L, 30_000L));
                 a.assertAll();
             }
 
             @Test
             void whenGrowing_thenSetNewSize() throws IOException, CacheSizeExhaustedException {
-                val contentFile = new File(tempDir, IdUtils.encodeId("4321") + ".mp4");
+                val contentFile = new File(tempDir, IdUtils.encodeClipId(4321L) + ".mp4");
 
                 assertThat(contentFile.exists()).isFalse();
-                sut.growContentFile("4321", 1200);
-                sut.writeContent("4321", 1000, TEST_DATA_BYTES);
+                sut.growContentFile(4321L, 1200);
+                sut.writeContent(4321L, 1000, TEST_DATA_BYTES);
 
                 assertThat(contentFile.exists()).isTrue();
                 assertThat(contentFile.length()).isEqualTo(1200);
 
-                sut.growContentFile("4321", 10000);
+                sut.growContentFile(4321L, 10000);
                 assertThat(contentFile.exists()).isTrue();
                 assertThat(contentFile.length()).isEqualTo(10000);
             }
 
             @Test
             void givenPositionIsAfterFileEnd_whenWriting_thenExceptionIsThrown() throws CacheSizeExhaustedException, IOException {
-                sut.growContentFile("1234", 1000L);
+                sut.growContentFile(1234L, 1000L);
                 assertThatExceptionOfType(EOFException.class)
-                    .isThrownBy(() -> sut.writeContent("1234", 1001, new byte[0]));
+                    .isThrownBy(() -> sut.writeContent(1234L, 1001, new byte[0]));
                 assertThatExceptionOfType(EOFException.class)
-                    .isThrownBy(() -> sut.writeContent("1234", 9999, TEST_DATA_BYTES));
+                    .isThrownBy(() -> sut.writeContent(1234L, 9999, TEST_DATA_BYTES));
             }
 
             @Test
             void givenContentIsNotPresent_whenReading_thenExceptionIsThrown() {
                 assertSoftly(a -> {
                     a.assertThatExceptionOfType(FileNotFoundException.class)
-                        .isThrownBy(() -> sut.readContentByte("not-existing", 0));
+                        .isThrownBy(() -> sut.readContentByte(5678L, 0));
                     a.assertThatExceptionOfType(FileNotFoundException.class)
-                        .isThrownBy(() -> sut.readContentBytes("not-existing", 0, new byte[1], 0, 1));
+                        .isThrownBy(() -> sut.readContentBytes(5678L, 0, new byte[1], 0, 1));
                 });
             }
 
             @Test
             void givenMetadataIsNotPresent_whenLoadingMetadata_thenEmpyResultIsReturned() throws IOException {
-                assertThat(sut.loadMetadata("nonexistent")).isEmpty();
+                assertThat(sut.loadMetadata(5678L)).isEmpty();
 
             }
 
             @Test
             void givenNotEnoughSpaceLeft_whenGrowing_thenExceptionIsThrown() {
-                assertThatNoException().isThrownBy(() -> sut.growContentFile("4321", 1_000L));
+                assertThatNoException().isThrownBy(() -> sut.growContentFile(4321L, 1_000L));
                 assertThatExceptionOfType(CacheSizeExhaustedException.class)
-                    .isThrownBy(() -> sut.growContentFile("4321", 12_000_000_000L));
+                    .isThrownBy(() -> sut.growContentFile(4321L, 12_000_000_000L));
             }
 
             @Nested
@@ -207,17 +207,17 @@ class CacheDirectoryTest {
 
                 @Nested
                 class GivenFilesForCleanupArePresent {
-                    private final List<String> createdClipIds = List.of("clip-1", "clip-2", "clip-3");
+                    private final List<Long> createdClipIds = List.of(1L, 2L, 3L);
                     private List<File> contentFiles;
                     private List<File> metaFiles;
 
                     @BeforeEach
                     void createFiles() throws IOException {
                         contentFiles = createdClipIds.stream()
-                            .map(clipId -> new File(tempDir, IdUtils.encodeId(clipId) + ".mp4"))
+                            .map(clipId -> new File(tempDir, IdUtils.encodeClipId(clipId) + ".mp4"))
                             .toList();
                         metaFiles = createdClipIds.stream()
-                            .map(clipId -> new File(tempDir, IdUtils.encodeId(clipId) + ".json"))
+                            .map(clipId -> new File(tempDir, IdUtils.encodeClipId(clipId) + ".json"))
                             .toList();
 
                         long lastModified = System.currentTimeMillis() - 10000;
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.service.repository.clip;
+
+import de.corelogics.mediaview.client.mediathekview.ClipEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClipCodecTest {
+    private static final ZonedDateTime BROADCASTED_AT = ZonedDateTime.of(2020, 10, 4, 8, 30, 20, 0, ZoneId.of("Europe/Berlin"));
+
+    @Test
+    void whenDecodingEncodedClip_thenAllFieldsAreEqual() throws IOException {
+        var clip = new ClipEntry("ARD", "Tagesschau", BROADCASTED_AT, "Tagesschau 20:00 Uhr", "00:15:00", 1024L, "https://ard.test/sd.mp4", "https://ard.test/hd.mp4");
+
+        var decoded = ClipCodec.decode(ClipCodec.encode(clip), UnaryOperator.identity());
+
+        assertThat(decoded).isEqualTo(clip);
+        assertThat(decoded.getId()).isEqualTo(clip.getId());
+        assertThat(decoded.getBroadcastedAt().getZone()).isEqualTo(BROADCASTED_AT.getZone());
+    }
+
+    @Test
+    void givenDurationNotInHoursMinutesSeconds_whenDecoding_thenDurationIsUnchanged() throws IOException {
+        var clip = new ClipEntry("ARD", "Tagesschau", BROADCASTED_AT, "title", "15 min", 0L, "", "");
+
+        assertThat(ClipCodec.decode(ClipCodec.encode(clip), UnaryOperator.identity()).getDuration()).isEqualTo("15 min");
+    }
+
+    @Test
+    void givenOtherZone_whenDecoding_thenZoneIsKept() throws IOException {
+        var clip = new ClipEntry("ARD", "Tagesschau", BROADCASTED_AT.withZoneSameInstant(ZoneId.of("UTC")), "title", "", 0L, "", "");
+
+        assertThat(ClipCodec.decode(ClipCodec.encode(clip), UnaryOperator.identity())).isEqualTo(clip);
+    }
+
+    @Test
+    void whenDecoding_thenNamesAreMapped() throws IOException {
+        var clip = new ClipEntry("ARD", "Tagesschau", BROADCASTED_AT, "title", "", 0L, "", "");
+
+        assertThat(ClipCodec.decode(ClipCodec.encode(clip), String::toUpperCase))
+            .extracting(ClipEntry::getChannelName, ClipEntry::getContainedIn, ClipEntry::getTitle)
+            .containsExactly("ARD", "TAGESSCHAU", "title");
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.corelogics.mediaview.service.repository.clip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClipFingerprintsTest {
+    @Test
+    void givenIdsAddedInAnyOrder_thenTheyAreFoundWithTheirLastFingerprint() {
+        var sut = new ClipFingerprints.Builder(0)
+            .add(30, 3)
+            .add(-10, 1)
+            .add(20, 2)
+            .add(-10, 4)
+            .build();
+
+        assertThat(sut.size()).isEqualTo(3);
+        assertThat(sut.fingerprintAt(sut.indexOf(-10))).isEqualTo(4);
+        assertThat(sut.fingerprintAt(sut.indexOf(20))).isEqualTo(2);
+        assertThat(sut.fingerprintAt(sut.indexOf(30))).isEqualTo(3);
+        assertThat(sut.indexOf(25)).isNegative();
+    }
+
+    @Test
+    void whenApplyingChanges_thenChangesReplaceAndExtendKnownFingerprints() {
+        var known = new ClipFingerprints.Builder(0).add(1, 1).add(3, 3).add(5, 5).build();
+        var changes = new ClipFingerprints.Builder(0).add(3, 33).add(4, 44).build();
+
+        var sut = known.withChanges(changes);
+
+        assertThat(sut.size()).isEqualTo(4);
+        assertThat(sut.fingerprintAt(sut.indexOf(1))).isEqualTo(1);
+        assertThat(sut.fingerprintAt(sut.indexOf(3))).isEqualTo(33);
+        assertThat(sut.fingerprintAt(sut.indexOf(4))).isEqualTo(44);
+        assertThat(sut.fingerprintAt(sut.indexOf(5))).isEqualTo(5);
+    }
+
+    @Test
+    void whenWrittenAndRead_thenSameFingerprintsAreReturned(@TempDir Path dir) throws IOException {
+        var file = dir.resolve("fingerprints");
+        new ClipFingerprints.Builder(0).add(7, 70).add(Long.MIN_VALUE, 1).build().writeTo(file);
+
+        var sut = ClipFingerprints.readFrom(file);
+
+        assertThat(sut.size()).isEqualTo(2);
+        assertThat(sut.idAt(0)).isEqualTo(Long.MIN_VALUE);
+        assertThat(sut.fingerprintAt(sut.indexOf(7))).isEqualTo(70);
+    }
+}
@@ -24,26 +24,34 @@
 
 package de.corelogics.mediaview.service.repository.clip;
 
+import de.corelogics.mediaview.client.mediatheklist.model.ListVersion;
 import de.corelogics.mediaview.client.mediathekview.ClipEntry;
 import de.corelogics.mediaview.config.MainConfiguration;
 import de.corelogics.mediaview.service.base.lucene.LuceneDirectory;
 import de.corelogics.mediaview.service.repository.clip.ClipRepository;
+import org.apache.lucene.document.StoredField;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class ClipRepositoryTest {
@@ -64,7 +72,6 @@ class ClipRepositoryTest {
     class GivenOnHapyPathTests {
         @BeforeEach
         void insertClips() {
-            var importedAt = ZonedDateTime.now();
             sut.addClips(
                 List.of(
                     createClip("A", "1", "A1-1", 10),
@@ -74,8 +81,7 @@ class ClipRepositoryTest {
                     createClip("B", "1", "B1-2", 8),
                     createClip("B", "2", "B2-1", 4),
                     createClip("B", "B3", "B3-1", 2),
-                    createClip("B", "B3", "B3-2", 1)),
-                importedAt);
+                    createClip("B", "B3", "B3-2", 1)));
         }
 
         @Test
@@ -124,6 +130,48 @@ class ClipRepositoryTest {
             });
         }
 
+        @Test
+        void whenCountingClipsOfShow_thenReturnNumberOfClips() {
+            assertSoftly(a -> {
+                a.assertThat(sut.countClips("channel:A", "show:1")).isEqualTo(2);
+                a.assertThat(sut.countClips("channel:B", "show:B3")).isEqualTo(2);
+                a.assertThat(sut.countClips("channel:B", "show:unknown")).isZero();
+            });
+        }
+
+        @Test
+        void whenFindingPageOfClips_thenReturnWindowAndTotal() {
+            var page = sut.findClips("channel:B", "show:B3", List.of(), 1, 5);
+            assertSoftly(a -> {
+                a.assertThat(page.clips()).extracting(ClipEntry::getTitle).containsExactly("title:B3-1");
+                a.assertThat(page.totalClips()).isEqualTo(2);
+            });
+        }
+
+        @Test
+        void whenFindingClipsSortedByTitle_thenReturnClipsInThatOrder() {
+            assertSoftly(a -> {
+                a.assertThat(sut.findClips("channel:A", "show:1", List.of(new ClipSortOrder(ClipSortOrder.Property.TITLE, true)), 0, 10).clips())
+                    .extracting(ClipEntry::getTitle).containsExactly("title:A1-1", "title:A1-2");
+                a.assertThat(sut.findClips("channel:A", "show:1", List.of(new ClipSortOrder(ClipSortOrder.Property.TITLE, false)), 0, 10).clips())
+                    .extracting(ClipEntry::getTitle).containsExactly("title:A1-2", "title:A1-1");
+            });
+        }
+
+        @Test
+        void whenFindingClipsOfChannelBetween_thenReturnClipsInRangeOrderedByBroadcastDate() {
+            assertThat(sut.findAllClipsForChannelBetween("channel:A", REF_TIME.minusDays(9), REF_TIME.minusDays(3)))
+                .extracting(ClipEntry::getTitle)
+                .containsExactly("title:A1-2", "title:A2-1");
+        }
+
+        @Test
+        void whenFindingNewestClips_thenReturnClipsOfAllChannelsOrderedByBroadcastDate() {
+            assertThat(sut.findNewestClips(3))
+                .extracting(ClipEntry::getTitle)
+                .containsExactly("title:B3-2", "title:B3-1", "title:B2-1");
+        }
+
         @Test
         void whenFindingClip_thenAllFieldsAreReturned() {
             var expectedClip = createClip("A", "2", "A2-1", 4);
@@ -142,7 +190,7 @@ class ClipRepositoryTest {
 
         @Test
         void givenImportRunInserted_thenReturnThisRun() {
-            sut.updateLastFullImport(REF_TIME);
+            sut.updateLastFullImport(REF_TIME, ListVersion.UNKNOWN);
             assertThat(sut.findLastFullImport()).isPresent().get()
                 .extracting(ZonedDateTime::toEpochSecond)
                 .isEqualTo(REF_TIME.toEpochSecond());
@@ -150,40 +198,294 @@ class ClipRepositoryTest {
 
         @Test
         void givenImportRunUpdated_thenReturnNewValue() {
-            sut.updateLastFullImport(REF_TIME.minusDays(10));
-            sut.updateLastFullImport(REF_TIME.minusDays(2));
+            sut.updateLastFullImport(REF_TIME.minusDays(10), ListVersion.UNKNOWN);
+            sut.updateLastFullImport(REF_TIME.minusDays(2), ListVersion.UNKNOWN);
             assertThat(sut.findLastFullImport()).isPresent().get()
                 .extracting(ZonedDateTime::toEpochSecond)
                 .isEqualTo(REF_TIME.minusDays(2).toEpochSecond());
         }
+
+        @Test
+        void givenImportRunWithListVersion_thenReturnThisVersion() {
+            var version = new ListVersion("\"etag-1\"", "Sun, 04 Oct 2020 06:30:20 GMT", "list-hash");
+            sut.updateLastFullImport(REF_TIME, version);
+            assertThat(sut.findLastFullImportVersion()).contains(version);
+        }
+
+        @Test
+        void givenImportRunWithUnknownListVersion_thenReturnUnknownVersion() {
+            sut.updateLastFullImport(REF_TIME, new ListVersion("\"etag-1\"", null, "list-hash"));
+            sut.updateLastFullImport(REF_TIME, ListVersion.UNKNOWN);
+            assertThat(sut.findLastFullImportVersion()).contains(ListVersion.UNKNOWN);
+        }
+
+        @Test
+        void givenImportRunCommitted_thenItIsReadWhenIndexIsOpenedAgain(@TempDir Path dir) throws IOException {
+            var index = dir.resolve("index");
+            var reopened = dir.resolve("reopened");
+            when(config.dbLocation()).thenReturn(Optional.of(index.toString()), Optional.of(reopened.toString()));
+            var directory = new LuceneDirectory(config, ClipRepository.INDEX_SORT, null);
+            var version = new ListVersion("\"etag-1\"", "Sun, 04 Oct 2020 06:30:20 GMT", "list-hash");
+            new ClipRepository(directory).updateLastFullImport(REF_TIME, version);
+            directory.commit();
+            copyIndex(index, reopened);
+
+            var repository = new ClipRepository(new LuceneDirectory(config, ClipRepository.INDEX_SORT, null));
+
+            assertThat(repository.findLastFullImport()).isPresent().get()
+                .extracting(ZonedDateTime::toEpochSecond)
+                .isEqualTo(REF_TIME.toEpochSecond());
+            assertThat(repository.findLastFullImportVersion()).contains(version);
+        }
     }
 
     @Nested
-    @DisplayName("when deleting clips not imported in last full run")
-    class DeleteNotImportedAtTests {
+    @DisplayName("when migrating the schema")
+    class SchemaMigrationTests {
         @Test
-        void thenAllOtherClipsAreRemoved() {
-            var oldImportTime = REF_TIME.minusDays(5);
-            var newImportTime = REF_TIME.minusDays(1);
-            sut.addClips(
-                List.of(
-                    createClip("A", "1", "o1", 10),
-                    createClip("A", "1", "o2", 10)),
-                oldImportTime);
-            sut.addClips(
-                List.of(
-                    createClip("A", "1", "n1", 10),
-                    createClip("A", "1", "n2", 10)),
-                newImportTime);
-            assertSoftly(a -> {
-                a.assertThat(sut.findAllClips("channel:A", "show:1")).extracting(ClipEntry::getTitle)
-                    .containsExactlyInAnyOrder("title:o1", "title:o2", "title:n1", "title:n2");
+        void givenClipsOfOlderSchema_thenTheyAndTheImportInfoAreDeleted() throws IOException {
+            var directory = new LuceneDirectory(config, ClipRepository.INDEX_SORT, null);
+            new ClipRepository(directory).updateLastFullImport(REF_TIME, ListVersion.UNKNOWN);
+            directory.performUpdate("test", writer -> writer.addDocument(directory.buildDocument("clip", 2).build()));
 
-                sut.deleteClipsImportedBefore(newImportTime);
+            var migrated = new ClipRepository(directory);
 
-                a.assertThat(sut.findAllClips("channel:A", "show:1")).extracting(ClipEntry::getTitle)
-                    .containsExactlyInAnyOrder("title:n1", "title:n2");
-            });
+            assertThat(migrated.findLastFullImport()).isEmpty();
+            assertThat(directory.performSearch("test", searcher -> searcher.count(directory.createDoctypeQuery("clip")))).isZero();
+        }
+
+        @Test
+        void givenImportInfoDocumentOfOlderSchema_thenItIsDeletedAndFullImportIsDue() throws IOException {
+            var directory = new LuceneDirectory(config, ClipRepository.INDEX_SORT, null);
+            var importInfo = directory.buildDocument("importinfo", 2).build();
+            importInfo.add(new StoredField("importedat", REF_TIME.toString()));
+            directory.performUpdate("test", writer -> writer.addDocument(importInfo));
+
+            var migrated = new ClipRepository(directory);
+
+            assertThat(migrated.findLastFullImport()).isEmpty();
+            assertThat(migrated.findLastFullImportVersion()).isEmpty();
+            assertThat(directory.performSearch("test", searcher -> searcher.count(directory.createDoctypeQuery("importinfo")))).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("when repeating queries")
+    class ResultCacheTests {
+        @Test
+        void givenIndexIsUnchanged_thenResultIsTakenFromCache() {
+            sut.addClips(List.of(createClip("A", "1", "A1-1", 10)));
+
+            var first = sut.findAllClips("channel:A", "show:1");
+            var second = sut.findAllClips("channel:A", "show:1");
+
+            assertThat(second).isSameAs(first);
+            assertThat(sut.resultCacheStats().hitCount()).isEqualTo(1);
+        }
+
+        @Test
+        void givenIndexChanged_thenResultIsSearchedAgain() {
+            sut.addClips(List.of(createClip("A", "1", "A1-1", 10)));
+            assertThat(sut.findAllClips("channel:A", "show:1")).hasSize(1);
+
+            sut.addClips(List.of(createClip("A", "1", "A1-2", 8)));
+
+            assertThat(sut.findAllClips("channel:A", "show:1")).hasSize(2);
+            assertThat(sut.resultCacheStats().hitCount()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("when running a full import")
+    class FullImportTests {
+        @Test
+        void thenOnlyNewAndChangedClipsAreWrittenAndMissingOnesDeleted() {
+            var kept = createClip("A", "1", "kept", 10);
+            var changed = createClip("A", "1", "changed", 10);
+            var changedNow = new ClipEntry(changed.getChannelName(), changed.getContainedIn(), changed.getBroadcastedAt(),
+                changed.getTitle(), "05:00:00", changed.getSize(), changed.getUrl(), changed.getUrlHd());
+            var added = createClip("A", "1", "added", 10);
+            sut.addClips(List.of(kept, changed, createClip("A", "1", "gone", 10)));
+
+            var fullImport = sut.startFullImport();
+            fullImport.addClips(sut.prepareClips(List.of(kept, changedNow, added)));
+            fullImport.finish();
+
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactlyInAnyOrder(kept, changedNow, added);
+        }
+
+        @Test
+        void givenRepositoryWasRecreated_thenFingerprintsAreReadFromIndex() {
+            var directory = new LuceneDirectory(config, ClipRepository.INDEX_SORT, null);
+            var kept = createClip("A", "1", "kept", 10);
+            new ClipRepository(directory).addClips(List.of(kept, createClip("A", "1", "gone", 10)));
+            var recreated = new ClipRepository(directory);
+
+            var fullImport = recreated.startFullImport();
+            fullImport.addClips(recreated.prepareClips(List.of(kept)));
+            fullImport.finish();
+
+            assertThat(recreated.findAllClips("channel:A", "show:1")).containsExactly(kept);
+        }
+
+        @Test
+        void givenRebuild_thenAllClipsAreReplacedAndOtherDocumentsKept() throws IOException {
+            var kept = createClip("A", "1", "kept", 10);
+            var twice = createClip("A", "1", "twice", 10);
+            sut.addClips(List.of(kept, createClip("A", "1", "gone", 10)));
+            sut.updateLastFullImport(REF_TIME.minusDays(1), ListVersion.UNKNOWN);
+
+            try (var rebuild = sut.startFullRebuild()) {
+                rebuild.addClips(sut.prepareClips(List.of(kept, twice)));
+                rebuild.addClips(sut.prepareClips(List.of(twice)));
+                assertThat(sut.findAllClips("channel:A", "show:1")).extracting(ClipEntry::getTitle)
+                    .containsExactlyInAnyOrder("title:kept", "title:gone");
+                rebuild.finish();
+            }
+
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactlyInAnyOrder(kept, twice);
+            assertThat(sut.findLastFullImport()).isPresent();
+        }
+
+        @Test
+        void givenRebuildIsAbandoned_thenClipsAreUnchanged() throws IOException {
+            var kept = createClip("A", "1", "kept", 10);
+            sut.addClips(List.of(kept));
+
+            try (var rebuild = sut.startFullRebuild()) {
+                rebuild.addClips(sut.prepareClips(List.of(createClip("A", "1", "new", 10))));
+            }
+
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactly(kept);
+        }
+
+        @Test
+        void givenClipIsListedTwice_thenLastOneWins() {
+            var first = createClip("A", "1", "twice", 10);
+            var second = new ClipEntry(first.getChannelName(), first.getContainedIn(), first.getBroadcastedAt(),
+                first.getTitle(), "05:00:00", first.getSize(), first.getUrl(), first.getUrlHd());
+            sut.addClips(List.of(first));
+
+            var fullImport = sut.startFullImport();
+            fullImport.addClips(sut.prepareClips(List.of(second)));
+            fullImport.addClips(sut.prepareClips(List.of(first)));
+            fullImport.finish();
+
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactly(first);
+        }
+    }
+
+    @Nested
+    @DisplayName("when partitioned by broadcast week")
+    class PartitionedTests {
+        private LuceneDirectory directory;
+
+        @BeforeEach
+        void createPartitionedDatabase() {
+            when(config.isDbPartitioned()).thenReturn(true);
+            directory = new LuceneDirectory(config, ClipRepository.INDEX_SORT, null);
+            sut = new ClipRepository(directory);
+        }
+
+        @Test
+        void givenClipsOfDifferentWeeks_thenEachWeekIsAPartition() {
+            var older = createClip("A", "1", "older", 10);
+            var newer = createClip("A", "1", "newer", 1);
+            sut.addClips(List.of(older, newer));
+
+            assertThat(directory.partitions()).containsExactlyInAnyOrder(
+                ClipRepository.partitionOf(older.getBroadcastedAt()),
+                ClipRepository.partitionOf(newer.getBroadcastedAt()));
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactly(newer, older);
+            assertThat(sut.findAllClipsForChannelBetween("channel:A", REF_TIME.minusDays(2), REF_TIME)).containsExactly(newer);
+        }
+
+        @Test
+        void givenBroadcastTimeChanged_thenClipIsMovedToItsNewWeek() {
+            var before = createClip("A", "1", "moved", 10);
+            var after = new ClipEntry(before.getChannelName(), before.getContainedIn(), REF_TIME.minusDays(1),
+                before.getTitle(), before.getDuration(), before.getSize(), before.getUrl(), before.getUrlHd());
+            sut.addClips(List.of(before));
+
+            var fullImport = sut.startFullImport();
+            fullImport.addClips(sut.prepareClips(List.of(after)));
+            fullImport.finish();
+
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactly(after);
+        }
+
+        @Test
+        void givenNewClipListedTwiceInDifferentWeeks_thenOnlyItsLastListingIsKept() {
+            var first = createClip("A", "1", "twice", 10);
+            var last = new ClipEntry(first.getChannelName(), first.getContainedIn(), REF_TIME.minusDays(1),
+                first.getTitle(), first.getDuration(), first.getSize(), first.getUrl(), first.getUrlHd());
+
+            var fullImport = sut.startFullImport();
+            fullImport.addClips(sut.prepareClips(List.of(first)));
+            fullImport.addClips(sut.prepareClips(List.of(last)));
+            fullImport.finish();
+
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactly(last);
+        }
+
+        @Test
+        void givenWeekIsMissingFromList_thenItsPartitionIsDropped() {
+            var gone = createClip("A", "1", "gone", 20);
+            var kept = createClip("A", "1", "kept", 1);
+            sut.addClips(List.of(gone, kept));
+
+            var fullImport = sut.startFullImport();
+            fullImport.addClips(sut.prepareClips(List.of(kept)));
+            fullImport.finish();
+
+            assertThat(directory.partitions()).containsExactly(ClipRepository.partitionOf(kept.getBroadcastedAt()));
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactly(kept);
+        }
+
+        @Test
+        void givenOnlyClipOfWeekIsGoneButImportAddedAnother_thenPartitionIsKept() {
+            // without a refresh after every update, the import's own clips aren't visible to searches yet
+            when(config.dbRefreshIntervalMillis()).thenReturn(60_000);
+            directory = new LuceneDirectory(config, ClipRepository.INDEX_SORT, null);
+            sut = new ClipRepository(directory);
+            var gone = createClip("A", "1", "gone", 20);
+            var added = createClip("A", "1", "added", 20);
+            var kept = createClip("A", "1", "kept", 1);
+            sut.addClips(List.of(gone, kept));
+
+            var fullImport = sut.startFullImport();
+            fullImport.addClips(sut.prepareClips(List.of(kept, added)));
+            fullImport.finish();
+
+            assertThat(directory.partitions()).containsExactlyInAnyOrder(
+                ClipRepository.partitionOf(added.getBroadcastedAt()),
+                ClipRepository.partitionOf(kept.getBroadcastedAt()));
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactly(kept, added);
+        }
+
+        @Test
+        void givenRebuild_thenPartitionsAreReplaced() throws IOException {
+            var gone = createClip("A", "1", "gone", 20);
+            var kept = createClip("A", "1", "kept", 1);
+            sut.addClips(List.of(gone, kept));
+
+            try (var rebuild = sut.startFullRebuild()) {
+                rebuild.addClips(sut.prepareClips(List.of(kept)));
+                rebuild.finish();
+            }
+
+            assertThat(directory.partitions()).containsExactly(ClipRepository.partitionOf(kept.getBroadcastedAt()));
+            assertThat(sut.findAllClips("channel:A", "show:1")).containsExactly(kept);
+        }
+    }
+
+    // the copy is what a restart would open, the index itself stays locked by its writer
+    private static void copyIndex(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (var files = Files.list(from)) {
+            for (var file : files.filter(f -> !"write.lock".equals(f.getFileName().toString())).toList()) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
         }
     }
 
@@ -28,23 +28,41 @@ import de.corelogics.mediaview.client.mediathekview.ClipEntry;
 import de.corelogics.mediaview.config.MainConfiguration;
 import de.corelogics.mediaview.service.base.lucene.LuceneDirectory;
 import de.corelogics.mediaview.service.base.threading.BaseThreading;
+import de.corelogics.mediaview.service.repository.clip.ClipRepository;
+import de.corelogics.mediaview.util.HashingUtils;
 import lombok.val;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Answers;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.tuple;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
 import static org.mockito.ArgumentMatchers.any;
@@ -54,7 +72,6 @@ import static org.mockito.Mockito.*;
 class TrackedViewRepositoryTest {
     @Nested
     class WhenAddingTrackedView {
-        @InjectMocks
         private TrackedViewRepository sut;
 
         @Mock
@@ -69,6 +86,13 @@ class TrackedViewRepositoryTest {
         @Mock(answer = Answers.RETURNS_SELF)
         private LuceneDirectory.DocumentBuilder documentBuilderMock;
 
+        @BeforeEach
+        void createSut() {
+            // no tracked views to migrate
+            when(luceneDirectoryMock.performSearch(any(), any())).thenReturn(List.of());
+            sut = new TrackedViewRepository(luceneDirectoryMock, baseThreading);
+        }
+
         @BeforeEach
         void mockPerformUpdate() throws IOException {
             doAnswer(a -> {
@@ -165,4 +189,90 @@ class TrackedViewRepositoryTest {
             });
         }
     }
+
+    @Nested
+    class WhenOpeningIndexOfBaselineLayout {
+        private final ZonedDateTime refTime = ZonedDateTime.of(2020, 10, 4, 8, 30, 20, 0, ZoneId.of("Europe/Berlin"));
+        private final ClipEntry viewedBefore = new ClipEntry("old-chan", "old container", refTime.minusDays(2), "old clip", "00:10:00", 0, "url-1", "url-hd-1");
+        private final ClipEntry clip = new ClipEntry("new-chan", "new container", refTime.minusDays(1), "new clip", "00:20:00", 0, "url-2", "url-hd-2");
+
+        private final FacetsConfig facetsConfig = new FacetsConfig();
+
+        @TempDir
+        private Path dir;
+
+        @Mock
+        private MainConfiguration mainConfiguration;
+
+        @Mock
+        private BaseThreading baseThreading;
+
+        @BeforeEach
+        void writeBaselineIndex() throws IOException {
+            val index = dir.resolve("index");
+            try (val directory = FSDirectory.open(index);
+                 val writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                val trackedView = baselineDocument("tracked-view", 1);
+                addBaselineField(trackedView, "id", HashingUtils.idString(viewedBefore.getId()) + "@" + refTime.minusDays(1).truncatedTo(ChronoUnit.DAYS), true, false);
+                addBaselineField(trackedView, "channelname", viewedBefore.getChannelName(), true, true);
+                addBaselineField(trackedView, "clip_id", HashingUtils.idString(viewedBefore.getId()), true, false);
+                addBaselineField(trackedView, "containedin", viewedBefore.getContainedIn(), true, true);
+                addBaselineField(trackedView, "title", viewedBefore.getTitle(), false, true);
+                trackedView.add(new StoredField("last_viewed_at", refTime.minusDays(1).toString()));
+                trackedView.add(new NumericDocValuesField("last_viewed_at$$sorted", refTime.minusDays(1).toEpochSecond()));
+                writer.addDocument(facetsConfig.build(trackedView));
+
+                val clipDocument = baselineDocument("clip", 2);
+                addBaselineField(clipDocument, "id", HashingUtils.idString(viewedBefore.getId()), true, false);
+                addBaselineField(clipDocument, "channelname", viewedBefore.getChannelName(), true, true);
+                addBaselineField(clipDocument, "containedin", viewedBefore.getContainedIn(), true, true);
+                addBaselineField(clipDocument, "title", viewedBefore.getTitle(), false, true);
+                clipDocument.add(new StoredField("broadcastedat", viewedBefore.getBroadcastedAt().toString()));
+                clipDocument.add(new NumericDocValuesField("broadcastedat$$sorted", viewedBefore.getBroadcastedAt().toEpochSecond()));
+                writer.addDocument(facetsConfig.build(clipDocument));
+            }
+            when(mainConfiguration.dbLocation()).thenReturn(Optional.of(index.toString()));
+        }
+
+        @Test
+        void thenTrackedViewsAreKeptAndNewClipsAndTrackedViewsAreWritten() {
+            val luceneDirectory = new LuceneDirectory(mainConfiguration, ClipRepository.INDEX_SORT, null);
+            val clipRepository = new ClipRepository(luceneDirectory);
+            val sut = new TrackedViewRepository(luceneDirectory, baseThreading);
+
+            clipRepository.addClips(List.of(clip));
+            sut.addTrackedView(clip, refTime);
+
+            assertThat(clipRepository.findAllClips(clip.getChannelName(), clip.getContainedIn())).containsExactly(clip);
+            assertThat(clipRepository.findAllClips(viewedBefore.getChannelName(), viewedBefore.getContainedIn())).isEmpty();
+            assertThat(sut.getRecentlySeenContainedIns(refTime.minusDays(3), refTime))
+                .extracting(TrackedContainedIn::channelName, TrackedContainedIn::containedIn, TrackedContainedIn::latestViewed)
+                .containsExactlyInAnyOrder(
+                    tuple(viewedBefore.getChannelName(), viewedBefore.getContainedIn(), refTime.minusDays(1)),
+                    tuple(clip.getChannelName(), clip.getContainedIn(), refTime));
+        }
+
+        private Document baselineDocument(String docType, long schemaVersion) {
+            val document = new Document();
+            document.add(new Field(LuceneDirectory.DOCUMENT_FIELD_TYPE, new BytesRef(docType), LuceneDirectory.TYPE_DOCVALUES_TEXT));
+            document.add(new StoredField(LuceneDirectory.DOCUMENT_FIELD_VERSION, schemaVersion));
+            document.add(new LongField(LuceneDirectory.DOCUMENT_FIELD_VERSION_SORTED, schemaVersion, Field.Store.NO));
+            return document;
+        }
+
+        // the baseline layout stored every text value in an analyzed field of the plain name, with positions
+        private void addBaselineField(Document document, String name, String value, boolean term, boolean sort) {
+            document.add(new TextField(name, value, Field.Store.YES));
+            if (sort) {
+                document.add(new SortedDocValuesField(name + "$$sorted", new BytesRef(value.toLowerCase(Locale.GERMANY))));
+            }
+            if (term) {
+                document.add(new Field(name + "$$term", value, LuceneDirectory.TYPE_NO_TOKENIZE));
+                document.add(new Field(name + "$$lowerterm", value.toLowerCase(Locale.GERMANY), LuceneDirectory.TYPE_NO_TOKENIZE));
+                facetsConfig.setIndexFieldName(name + "$$facet", name + "$$facet");
+                facetsConfig.setMultiValued(name + "$$facet", true);
+                document.add(new SortedSetDocValuesFacetField(name + "$$facet", value));
+            }
+        }
+    }
 }
@@ -27,10 +27,23 @@ package de.corelogics.mediaview.util;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 class HashingUtilsTest {
     @Test
     void testSip42() {
-        assertEquals("zzC8iiAzkDg", HashingUtils.idHash("this is a", "test string"));
+        assertEquals("zzC8iiAzkDg", HashingUtils.idString(HashingUtils.idHash("this is a", "test string")));
+    }
+
+    @Test
+    void testIdHashValueRoundTrip() {
+        var id = HashingUtils.idHash("this is a", "test string");
+        assertEquals(id, HashingUtils.idHashValue(HashingUtils.idString(id)));
+    }
+
+    @Test
+    void testHashSeparatesStrings() {
+        assertNotEquals(HashingUtils.hash("ab", "c"), HashingUtils.hash("a", "bc"));
+        assertEquals(HashingUtils.hash("a", null), HashingUtils.hash("a", ""));
     }
 }
@@ -1,7 +1,9 @@
 package de.corelogics.mediaview.util;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
@@ -22,4 +24,21 @@ class IdUtilsTest {
         });
 
     }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE})
+    void whenEncodingAndDecodingClipId_thenSameIdIsReturned(long clipId) {
+        assertThat(IdUtils.decodeClipId(IdUtils.encodeClipId(clipId))).isEqualTo(clipId);
+    }
+
+    @Test
+    void givenClipIdOfOldLink_whenDecoding_thenIdIsReturned() {
+        var clipId = HashingUtils.idHash("channel", "https://some.url/clip.mp4");
+        assertThat(IdUtils.decodeClipId(IdUtils.encodeId(HashingUtils.idString(clipId)))).isEqualTo(clipId);
+    }
+
+    @Test
+    void givenNoClipId_whenDecoding_thenExceptionIsThrown() {
+        assertThrows(IllegalArgumentException.class, () -> IdUtils.decodeClipId("no clip id"));
+    }
 }
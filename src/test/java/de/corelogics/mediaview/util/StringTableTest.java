@@ -0,0 +1,54 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2025 Mediatheken DLNA Bridge Authors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.corelogics.mediaview.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StringTableTest {
+    @Test
+    void whenCanonicalizingEqualStrings_thenFirstInstanceIsReturned() {
+        var sut = new StringTable(10);
+        var first = new String("channel");
+
+        assertThat(sut.canonicalize(first)).isSameAs(first);
+        assertThat(sut.canonicalize(new String("channel"))).isSameAs(first);
+        assertThat(sut.canonicalize(null)).isNull();
+        assertThat(sut.size()).isEqualTo(1);
+    }
+
+    @Test
+    void whenTableIsFull_thenUnknownValuesArePassedThrough() {
+        var sut = new StringTable(1);
+        var known = sut.canonicalize(new String("known"));
+        var unknown = new String("unknown");
+
+        assertThat(sut.canonicalize(unknown)).isSameAs(unknown);
+        assertThat(sut.canonicalize(new String("unknown"))).isNotSameAs(unknown);
+        assertThat(sut.canonicalize(new String("known"))).isSameAs(known);
+        assertThat(sut.size()).isEqualTo(1);
+    }
+}